@@ -0,0 +1,393 @@
+package net.stickycode.plugin.bounds;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+
+/**
+ * The repository plumbing shared by the goals that resolve version ranges
+ */
+public abstract class AbstractBoundsMojo
+    extends AbstractMojo {
+
+  /**
+   * The Maven Project.
+   */
+  @Parameter(defaultValue = "${project}", required = true, readonly = true)
+  protected MavenProject project;
+
+  /**
+   * The Maven session, the resolution cache is shared across all of its modules.
+   */
+  @Parameter(defaultValue = "${session}", required = true, readonly = true)
+  protected MavenSession mavenSession;
+
+  /**
+   * The entry point to Aether, i.e. the component doing all the work.
+   *
+   */
+  @Component
+  protected RepositorySystem repository;
+
+  /**
+   * The current repository/network configuration of Maven.
+   */
+  @Parameter(defaultValue = "${repositorySystemSession}", required = true, readonly = true)
+  protected RepositorySystemSession session;
+
+  /**
+   * The project's remote repositories to use for the resolution.
+   */
+  @Parameter(defaultValue = "${project.remoteProjectRepositories}", required = true, readonly = true)
+  protected List<RemoteRepository> repositories;
+
+  /**
+   * Keep resolved version lists on disk so later builds on this machine can answer from them without the resolver
+   */
+  @Parameter(defaultValue = "false")
+  private boolean diskCache = false;
+
+  /**
+   * Where the version lists are kept when the disk cache is enabled, and the routes when they are learned
+   */
+  @Parameter(defaultValue = "${user.home}/.m2/bounds-cache")
+  private File cacheDirectory;
+
+  /**
+   * How many minutes a version list on disk is trusted for
+   */
+  @Parameter(defaultValue = "60")
+  private int diskCacheTimeToLive = 60;
+
+  /**
+   * How many minutes an artifact that is missing or a range with nothing in it is remembered on disk for, 0 to not remember
+   * them. Only used when the disk cache is on.
+   */
+  @Parameter(defaultValue = "10")
+  private int negativeCacheTimeToLive = 10;
+
+  /**
+   * Forget the missing artifacts and empty ranges remembered on disk by earlier builds with the disk cache on, once at the
+   * start of the build
+   */
+  @Parameter(defaultValue = "false")
+  private boolean purgeNegativeCache = false;
+
+  /**
+   * Adjust how many lookups each repository is asked at once, fewer when it throttles or fails and more while it keeps up,
+   * never more than the threads of the goal. Off by default as each repository is then asked on its own.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean adaptiveConcurrency = false;
+
+  /**
+   * Learn which repositories have versions for each group and only ask those in later builds, the routes are kept in the
+   * cache directory. Until a route expires a newer version published only to a repository off the route is not seen.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean learnRoutes = false;
+
+  /**
+   * How many minutes a learned route is trusted for before all the repositories are asked again
+   */
+  @Parameter(defaultValue = "1440")
+  private int routeTimeToLive = 1440;
+
+  /**
+   * Answer ranges on modules of the reactor and artifacts of the workspace with their versions rather than asking the
+   * repositories
+   */
+  @Parameter(defaultValue = "true")
+  private boolean useReactorVersions = true;
+
+  /**
+   * If a module of the reactor or workspace with a SNAPSHOT version answers ranges on it, otherwise the repositories are asked
+   */
+  @Parameter(defaultValue = "false")
+  private boolean reactorSnapshots = false;
+
+  /**
+   * How many seconds to wait on each repository for a version list before carrying on without it, 0 to wait as long as the
+   * resolver does
+   */
+  @Parameter(defaultValue = "0")
+  private int repositoryTimeout = 0;
+
+  /**
+   * After how many failures in a row a repository is left out for the rest of the build, 0 to keep asking it. The ranges
+   * resolved without it are reported as failures and never cached.
+   */
+  @Parameter(defaultValue = "0")
+  private int circuitBreakerFailures = 0;
+
+  /**
+   * The url of a mirror with the same content by repository id, asked as well when the repository is slower than it
+   * usually is
+   */
+  @Parameter
+  private Map<String, String> hedgeMirrors;
+
+  private ReactorVersions reactorVersions;
+
+  protected RangeResolver newResolver(int threads) {
+    // the goals look at the repositories, a lock would only hand them back what they locked
+    RangeResolver resolver = new RangeResolver(repository, RangeResolver.bypassingLock(session), threads);
+    if (purgeNegativeCache && resolver.getCache().claimPurge()) {
+      getLog().info(String.format("Purged %d remembered missing artifacts and empty ranges", diskCache().purgeNegative()));
+      if (!diskCache)
+        getLog().warn("The disk cache is off so missing artifacts and empty ranges are not remembered by this build");
+    }
+
+    if (diskCache)
+      resolver.withDiskCache(diskCache());
+
+    if (adaptiveConcurrency)
+      resolver.withLimits(RepositoryLimits.of(session), getLog()::debug);
+
+    if (learnRoutes)
+      resolver.withRoutes(new RepositoryRoutes(cacheDirectory.toPath().resolve("routes.properties"),
+        Duration.ofMinutes(routeTimeToLive)).load());
+
+    if (repositoryTimeout > 0 || circuitBreakerFailures > 0 || hedgeMirrors != null && !hedgeMirrors.isEmpty())
+      resolver.withGuard(RepositoryGuard.of(session, Duration.ofSeconds(repositoryTimeout), circuitBreakerFailures,
+        hedgeMirrors));
+
+    if (getTimeBudget() > 0)
+      resolver.withBudget(TimeBudget.of(session, Duration.ofSeconds(getTimeBudget())));
+
+    return resolver;
+  }
+
+  protected boolean isAdaptiveConcurrency() {
+    return adaptiveConcurrency;
+  }
+
+  protected boolean isUseReactorVersions() {
+    return useReactorVersions;
+  }
+
+  protected boolean isReactorSnapshots() {
+    return reactorSnapshots;
+  }
+
+  private DiskVersionCache diskCache() {
+    return new DiskVersionCache(cacheDirectory,
+      Duration.ofMinutes(diskCacheTimeToLive),
+      Duration.ofMinutes(negativeCacheTimeToLive));
+  }
+
+  /**
+   * The versions known without asking a repository, worked out once per execution
+   */
+  protected ReactorVersions reactorVersions() {
+    if (reactorVersions != null)
+      return reactorVersions;
+
+    if (!useReactorVersions)
+      reactorVersions = new ReactorVersions();
+    else
+      reactorVersions = ReactorVersions.declared(reactor(), reactorSnapshots)
+        .withWorkspace(session != null ? session.getWorkspaceReader() : null);
+
+    return reactorVersions;
+  }
+
+  void use(ReactorVersions reactorVersions) {
+    this.reactorVersions = reactorVersions;
+  }
+
+  /**
+   * The version of a module of the reactor or the workspace when it is in the range of the artifact, null when the
+   * repositories need to be asked
+   */
+  protected Version reactorVersion(Artifact artifact) {
+    String version = reactorVersions().version(artifact);
+    if (version == null)
+      return null;
+
+    getLog().debug("using reactor version " + version + " of " + artifact.getGroupId() + ":" + artifact.getArtifactId());
+    try {
+      return new GenericVersionScheme().parseVersion(version);
+    }
+    catch (InvalidVersionSpecificationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * The cache outlives the mojo so the last module of the reactor reports how it did for the whole build
+   */
+  protected void reportResolution(RangeResolver resolver) {
+    reportResolution(resolver, isLastProject());
+  }
+
+  /**
+   * The goals that work on the whole reactor run once, wherever they are bound, so they always report at info
+   */
+  protected void reportResolution(RangeResolver resolver, boolean info) {
+    String summary = resolver.getCache().summary();
+    if (resolver.getLimits() != null)
+      summary += System.lineSeparator() + resolver.getLimits().summary();
+    if (resolver.getGuard() != null && !resolver.getGuard().summary().isEmpty())
+      summary += System.lineSeparator() + resolver.getGuard().summary();
+
+    if (info)
+      getLog().info(summary);
+    else
+      getLog().debug(summary);
+  }
+
+  /**
+   * Only the versions that change are spliced into the poms, so a configured line separator no longer changes anything
+   */
+  protected void noteLineSeparator(LineSeparator lineSeparator) {
+    if (!System.lineSeparator().equals(lineSeparator.value()) && ResolutionCache.of(session).claimLineSeparatorNote())
+      getLog().info(String.format("The line separator is configured to %s but is no longer used, the poms keep the line"
+        + " separators they have", lineSeparator));
+  }
+
+  /**
+   * How many seconds all the resolution of the build may take, only update and upgrade have a budget as they can write what
+   * was resolved in time and report the rest
+   */
+  protected int getTimeBudget() {
+    return 0;
+  }
+
+  /**
+   * Report the ranges skipped when the time budget ran out, called once what was resolved in time has been written
+   */
+  protected void reportSkipped(List<String> skipped, boolean failImmediately) throws MojoExecutionException {
+    if (skipped.isEmpty())
+      return;
+
+    String message = String.format("Ran out of the %ds time budget, skipped %d ranges:%n  %s", getTimeBudget(), skipped.size(),
+      String.join(String.format("%n  "), skipped));
+    if (failImmediately)
+      throw new MojoExecutionException(message);
+
+    getLog().warn(message);
+  }
+
+  /**
+   * The dependencies given a version in the pom being rewritten. The effective model also has everything inherited from parents
+   * and imported boms, this pom cannot change those so resolving them is wasted.
+   */
+  protected List<Dependency> declaredDependencies(PomIndex index) {
+    return declared(project.getDependencies(), index::dependencies);
+  }
+
+  protected List<Dependency> declaredManagedDependencies(PomIndex index) {
+    if (project.getDependencyManagement() == null)
+      return Collections.emptyList();
+
+    return declared(project.getDependencyManagement().getDependencies(), index::managedDependencies);
+  }
+
+  /**
+   * The version properties defined in the pom being rewritten rather than inherited
+   */
+  protected List<String> declaredVersionProperties(PomIndex index) {
+    List<String> names = new ArrayList<>();
+    for (String propertyName : project.getProperties().stringPropertyNames())
+      if (propertyName.endsWith(".version") && index.property(propertyName) != null)
+        names.add(propertyName);
+
+    return names;
+  }
+
+  /**
+   * The dependency or managed dependency whose version is the property, by the artifactId.version convention
+   */
+  protected Dependency dependencyUsingVersionProperty(String propertyName) {
+    for (Dependency dependency : project.getDependencies())
+      if (propertyName.equals(dependency.getArtifactId() + ".version"))
+        return dependency;
+
+    if (project.getDependencyManagement() != null)
+      for (Dependency dependency : project.getDependencyManagement().getDependencies())
+        if (propertyName.equals(dependency.getArtifactId() + ".version"))
+          return dependency;
+
+    return null;
+  }
+
+  protected void warnAboutVersionProperty(Dependency dependency) {
+    if (project.getDependencies().contains(dependency))
+      getLog()
+        .warn(
+          "If you use dependency composition then you will find that version properties "
+            + "are really not that useful. Its an extra indirection that often you don't need. "
+            + "IMO people take the magic number refactoring too far");
+    else
+      getLog()
+        .warn(
+          "Dependency Management is an anti pattern, think OO or functional, "
+            + "dependencies should be composed NOT inherited");
+  }
+
+  private List<Dependency> declared(List<Dependency> dependencies,
+      Function<Artifact, List<PomIndex.DependencyElement>> elements) {
+    List<Dependency> declared = new ArrayList<>();
+    for (Dependency dependency : dependencies) {
+      Artifact artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(),
+        dependency.getClassifier(), dependency.getType(), "");
+      for (PomIndex.DependencyElement element : elements.apply(artifact)) {
+        if (element.matches(artifact) && element.hasVersion()) {
+          declared.add(dependency);
+          break;
+        }
+      }
+    }
+    return declared;
+  }
+
+  /**
+   * The modules of the build in reactor order, just this project when there is no session
+   */
+  protected List<MavenProject> reactor() {
+    if (mavenSession == null || mavenSession.getProjects() == null || mavenSession.getProjects().isEmpty())
+      return Collections.singletonList(project);
+
+    return mavenSession.getProjects();
+  }
+
+  /**
+   * Work on another module of the reactor, used by the goals that process every module in one execution
+   */
+  protected void select(MavenProject module) {
+    this.project = module;
+    this.repositories = module.getRemoteProjectRepositories();
+  }
+
+  boolean isLastProject() {
+    if (mavenSession == null || mavenSession.getProjects() == null || mavenSession.getProjects().isEmpty())
+      return true;
+
+    // compare coordinates not versions as next-version may have changed the version already
+    MavenProject last = mavenSession.getProjects().get(mavenSession.getProjects().size() - 1);
+    return last.getGroupId().equals(project.getGroupId())
+      && last.getArtifactId().equals(project.getArtifactId());
+  }
+
+}
@@ -16,15 +16,23 @@ public class Changes {
     if (version.equals(version2))
       return false;
 
-    String[] v1 = version.split("\\.");
-    String[] v2 = version2.split("\\.");
-    if (v1.length > 0 && v2.length > 0)
-      if (!v1[0].equals(v2[0]))
-        return upgrade = true;
+    if (!lower(version).sameMajor(lower(version2)))
+      return upgrade = true;
 
     return update = acceptMinorVersionChanges;
   }
 
+  /**
+   * The version itself or the lower bound when its a range
+   */
+  private ParsedVersion lower(String version) {
+    VersionRange range = VersionRange.parse(version);
+    if (range.isRange() && range.getLower() != null)
+      return ParsedVersion.parse(range.getLower());
+
+    return ParsedVersion.parse(version);
+  }
+
   public boolean updated() {
     return update || upgrade;
   }
@@ -0,0 +1,235 @@
+package net.stickycode.plugin.bounds;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.ArtifactRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionScheme;
+
+/**
+ * Resolved version lists kept on disk between builds, one small binary file per request. Artifacts that are missing and
+ * ranges with nothing released in them can be remembered too, usually for a shorter time.
+ *
+ * Entries are written to a temporary file and moved into place so a concurrent build on the same machine either sees the
+ * old entry or the new one, never half of one.
+ */
+public class DiskVersionCache {
+
+  private static final int MAGIC = 0x426e6473;
+
+  private static final byte FORMAT = 2;
+
+  private static final byte VERSIONS = 'V';
+
+  private static final byte EMPTY = 'E';
+
+  private static final byte MISSING = 'M';
+
+  private final Path directory;
+
+  private final Duration timeToLive;
+
+  private final Duration negativeTimeToLive;
+
+  private final VersionScheme scheme = new GenericVersionScheme();
+
+  private Clock clock = Clock.systemUTC();
+
+  public DiskVersionCache(File directory, Duration timeToLive) {
+    this(directory, timeToLive, Duration.ZERO);
+  }
+
+  /**
+   * @param negativeTimeToLive how long missing artifacts and empty ranges are remembered, zero to not remember them at all
+   */
+  public DiskVersionCache(File directory, Duration timeToLive, Duration negativeTimeToLive) {
+    this.directory = directory.toPath();
+    this.timeToLive = timeToLive;
+    this.negativeTimeToLive = negativeTimeToLive;
+  }
+
+  DiskVersionCache withClock(Clock clock) {
+    this.clock = clock;
+    return this;
+  }
+
+  /**
+   * The cached result for the request or null if there is none or it has expired. An artifact known to be missing answers
+   * for every range.
+   */
+  public VersionRangeResult get(VersionRangeRequest request) {
+    VersionRangeResult result = read(request, ResolutionCache.key(request));
+    if (result == null && negative())
+      return read(request, ResolutionCache.missingKey(request));
+
+    return result;
+  }
+
+  private VersionRangeResult read(VersionRangeRequest request, String key) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path(request, key))))) {
+      if (in.readInt() != MAGIC || in.readByte() != FORMAT)
+        return null;
+
+      byte kind = in.readByte();
+      long written = in.readLong();
+      Duration alive = kind == VERSIONS ? timeToLive : negativeTimeToLive;
+      if (clock.millis() - written > alive.toMillis())
+        return null;
+
+      // the file name is a hash so check its really our entry
+      if (!key.equals(in.readUTF()))
+        return null;
+
+      VersionRangeResult result = new VersionRangeResult(request);
+      result.setVersionConstraint(scheme.parseVersionConstraint(request.getArtifact().getVersion()));
+      if (kind == MISSING)
+        result.addException(new MetadataNotFoundException(null, null,
+          "No metadata for " + request.getArtifact().getGroupId() + ":" + request.getArtifact().getArtifactId() + " (remembered)"));
+
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        Version version = scheme.parseVersion(in.readUTF());
+        result.addVersion(version);
+        result.setRepository(version, repository(request, in.readUTF()));
+      }
+      return result;
+    }
+    catch (NoSuchFileException e) {
+      return null;
+    }
+    catch (IOException | InvalidVersionSpecificationException e) {
+      // a corrupt or unreadable entry is just a miss, the next put replaces it
+      return null;
+    }
+  }
+
+  /**
+   * Clean results with versions are kept, as are missing artifacts and empty ranges when the negative cache is on
+   */
+  public void put(VersionRangeRequest request, VersionRangeResult result) {
+    if (!ResolutionCache.isClean(result))
+      return;
+
+    if (!result.getVersions().isEmpty())
+      write(request, ResolutionCache.key(request), VERSIONS, result);
+    else if (negative() && isMissing(request, result))
+      write(request, ResolutionCache.missingKey(request), MISSING, result);
+    else if (negative())
+      write(request, ResolutionCache.key(request), EMPTY, result);
+  }
+
+  /**
+   * Missing when every repository said it had no metadata at all, otherwise it was just an empty range
+   */
+  private boolean isMissing(VersionRangeRequest request, VersionRangeResult result) {
+    return !result.getExceptions().isEmpty() && result.getExceptions().size() >= request.getRepositories().size();
+  }
+
+  private boolean negative() {
+    return !negativeTimeToLive.isZero() && !negativeTimeToLive.isNegative();
+  }
+
+  private void write(VersionRangeRequest request, String key, byte kind, VersionRangeResult result) {
+    try {
+      AtomicFiles.write(path(request, key), file -> {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT);
+        out.writeByte(kind);
+        out.writeLong(clock.millis());
+        out.writeUTF(key);
+        out.writeInt(result.getVersions().size());
+        for (Version version : result.getVersions()) {
+          out.writeUTF(version.toString());
+          ArtifactRepository repository = result.getRepository(version);
+          out.writeUTF(repository != null ? repository.getId() : "");
+        }
+        out.flush();
+      });
+    }
+    catch (IOException e) {
+      // the cache is an optimisation, failing to write it should not fail the build
+    }
+  }
+
+  /**
+   * Delete the remembered missing artifacts and empty ranges, the version lists are left alone
+   *
+   * @return the number of entries deleted
+   */
+  public int purgeNegative() {
+    if (!Files.isDirectory(directory))
+      return 0;
+
+    int purged = 0;
+    try (Stream<Path> entries = Files.walk(directory)) {
+      for (Path entry : (Iterable<Path>) entries.filter(p -> p.toString().endsWith(".versions"))::iterator)
+        if (isNegativeEntry(entry) && Files.deleteIfExists(entry))
+          purged++;
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return purged;
+  }
+
+  private boolean isNegativeEntry(Path entry) {
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(entry))) {
+      return in.readInt() == MAGIC && in.readByte() == FORMAT && in.readByte() != VERSIONS;
+    }
+    catch (IOException e) {
+      return false;
+    }
+  }
+
+  private ArtifactRepository repository(VersionRangeRequest request, String id) {
+    for (RemoteRepository remote : request.getRepositories())
+      if (remote.getId().equals(id))
+        return remote;
+
+    return null;
+  }
+
+  Path path(VersionRangeRequest request, String key) {
+    Artifact artifact = request.getArtifact();
+    return directory
+      .resolve(artifact.getGroupId())
+      .resolve(artifact.getArtifactId())
+      .resolve(hash(key) + ".versions");
+  }
+
+  private static String hash(String key) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest)
+        hex.append(String.format("%02x", b));
+      return hex.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+}
@@ -0,0 +1,204 @@
+package net.stickycode.plugin.bounds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * What each module looked like when it was last upgraded, the hash of its pom, the ranges it resolved and a fingerprint of
+ * the upgrade configuration and the versions they resolved to. A module whose pom and fingerprint are both the same as last time would be upgraded to the
+ * same pom again, so it can be skipped.
+ *
+ * The state is read once per build and shared by every module of it.
+ */
+public class IncrementalState {
+
+  private final Path file;
+
+  private final Map<String, Entry> entries = new TreeMap<>();
+
+  private Set<String> unchanged;
+
+  private boolean changed;
+
+  IncrementalState(Path file) {
+    this.file = file;
+  }
+
+  public static IncrementalState of(RepositorySystemSession session, Path file) {
+    return SessionSingletons.of(session, IncrementalState.class.getName(), IncrementalState.class,
+      () -> new IncrementalState(file).load());
+  }
+
+  /**
+   * Read the state of the last build, an unreadable file is the same as no state so every module is upgraded
+   */
+  synchronized IncrementalState load() {
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      properties.load(in);
+    }
+    catch (NoSuchFileException e) {
+      return this;
+    }
+    catch (IOException e) {
+      return this;
+    }
+
+    for (String module : properties.stringPropertyNames()) {
+      String[] value = properties.getProperty(module).split(" ");
+      if (value.length >= 2)
+        entries.put(module, new Entry(value[0], value[1], Arrays.asList(value).subList(2, value.length)));
+    }
+    return this;
+  }
+
+  public synchronized Entry get(String module) {
+    return entries.get(module);
+  }
+
+  public synchronized void put(String module, Entry entry) {
+    if (!entry.equals(entries.put(module, entry)))
+      changed = true;
+  }
+
+  /**
+   * The module could not be fingerprinted so it is upgraded again next time
+   */
+  public synchronized void forget(String module) {
+    if (entries.remove(module) != null)
+      changed = true;
+  }
+
+  /**
+   * If the reactor has been checked against the state yet, it is checked once up front for every module
+   */
+  public synchronized boolean isChecked() {
+    return unchanged != null;
+  }
+
+  public synchronized void checked(Set<String> unchanged) {
+    this.unchanged = new HashSet<>(unchanged);
+  }
+
+  public synchronized boolean isUnchanged(String module) {
+    return unchanged != null && unchanged.contains(module);
+  }
+
+  /**
+   * Write the state if anything was remembered or forgotten, failing to write it does not fail the build
+   */
+  public synchronized void save() {
+    if (!changed)
+      return;
+
+    Properties properties = new Properties();
+    for (Map.Entry<String, Entry> entry : entries.entrySet())
+      properties.setProperty(entry.getKey(), entry.getValue().toString());
+
+    try {
+      AtomicFiles.write(file,
+        out -> properties.store(out, "the pom hash, version fingerprint and ranges of each module, kept by the bounds plugin"));
+      changed = false;
+    }
+    catch (IOException e) {
+      // the state is an optimisation, the next build just upgrades every module again
+    }
+  }
+
+  public static String hash(String text) {
+    return hash(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static String hash(byte[] content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest)
+        hex.append(String.format("%02x", b));
+      return hex.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * The hash of the file, null if it cannot be read
+   */
+  public static String hash(Path file) {
+    try {
+      return hash(Files.readAllBytes(file));
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+
+  public static final class Entry {
+
+    private final String pom;
+
+    private final String fingerprint;
+
+    private final List<String> coordinates;
+
+    /**
+     * @param coordinates the groupId:artifactId:range of each range the module resolved, ranges have no spaces
+     */
+    public Entry(String pom, String fingerprint, List<String> coordinates) {
+      this.pom = pom;
+      this.fingerprint = fingerprint;
+      this.coordinates = Collections.unmodifiableList(coordinates);
+    }
+
+    public String getPom() {
+      return pom;
+    }
+
+    public String getFingerprint() {
+      return fingerprint;
+    }
+
+    public List<String> getCoordinates() {
+      return coordinates;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Entry))
+        return false;
+
+      Entry entry = (Entry) other;
+      return pom.equals(entry.pom) && fingerprint.equals(entry.fingerprint) && coordinates.equals(entry.coordinates);
+    }
+
+    @Override
+    public int hashCode() {
+      return pom.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder value = new StringBuilder(pom).append(' ').append(fingerprint);
+      for (String coordinate : coordinates)
+        value.append(' ').append(coordinate);
+      return value.toString();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package net.stickycode.plugin.bounds;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * The version chosen for each range of a reactor, one line per range like
+ *
+ * <pre>
+ * net.stickycode:sticky-coercion:[2.1,3) = 2.6
+ * </pre>
+ *
+ * sorted so the file only changes when a version does. A range that is written differently in a pom is a different range
+ * and will not be found.
+ */
+public class LockFile {
+
+  private static final String SEPARATOR = " = ";
+
+  private final Map<String, String> versions = new TreeMap<>();
+
+  public static LockFile read(Path path) throws IOException {
+    LockFile lock = new LockFile();
+    for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+      if (line.isEmpty() || line.startsWith("#"))
+        continue;
+
+      int separator = line.lastIndexOf(SEPARATOR);
+      if (separator < 0)
+        throw new IOException("Lock file " + path + " has a line without a version: " + line);
+
+      lock.versions.put(line.substring(0, separator).trim(), line.substring(separator + SEPARATOR.length()).trim());
+    }
+    return lock;
+  }
+
+  public void put(Artifact artifact, String version) {
+    versions.put(key(artifact), version);
+  }
+
+  /**
+   * The version locked for the range of the artifact, null if the range is not locked
+   */
+  public String version(Artifact artifact) {
+    return versions.get(key(artifact));
+  }
+
+  public int size() {
+    return versions.size();
+  }
+
+  /**
+   * Written to a temporary file and moved into place so a build reading the lock never sees half of it
+   */
+  public void write(Path path) throws IOException {
+    List<String> lines = new ArrayList<>(versions.size() + 1);
+    lines.add("# the versions chosen for the ranges of this reactor by bounds:lock");
+    for (Map.Entry<String, String> entry : versions.entrySet())
+      lines.add(entry.getKey() + SEPARATOR + entry.getValue());
+
+    AtomicFiles.write(path, out -> out.write(String.join(System.lineSeparator(), lines).concat(System.lineSeparator())
+      .getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static String key(Artifact artifact) {
+    return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion().trim();
+  }
+}
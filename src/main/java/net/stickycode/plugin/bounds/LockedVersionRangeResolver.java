@@ -0,0 +1,115 @@
+package net.stickycode.plugin.bounds;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.maven.repository.internal.DefaultVersionRangeResolver;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.impl.VersionRangeResolver;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResolutionException;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.util.ConfigUtils;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionScheme;
+import org.eclipse.sisu.Priority;
+
+/**
+ * Answers the ranges written by bounds:lock from the lock file without looking at any metadata, anything not in the lock
+ * is resolved as usual. It is in the sisu index of the plugin jar, so it takes over range resolution for the whole build
+ * whenever the plugin is an extension, in .mvn/extensions.xml or a pom with extensions set, and a lock file exists.
+ * Only the ranges declared in the reactor are locked, transitive ranges still resolve against the repositories.
+ *
+ * The lock is .mvn/bounds.lock of the project unless -Dbounds.lockFile says otherwise, and one older than
+ * -Dbounds.lockTimeToLive minutes is ignored, by default it never expires. The goals of the plugin resolve with
+ * bounds.lock.bypass set so lock and upgrade see the repositories rather than the lock.
+ */
+@Named
+@Singleton
+@Priority(10)
+public class LockedVersionRangeResolver
+    implements VersionRangeResolver {
+
+  private final VersionRangeResolver delegate;
+
+  private final VersionScheme scheme = new GenericVersionScheme();
+
+  @Inject
+  public LockedVersionRangeResolver(DefaultVersionRangeResolver delegate) {
+    this((VersionRangeResolver) delegate);
+  }
+
+  LockedVersionRangeResolver(VersionRangeResolver delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public VersionRangeResult resolveVersionRange(RepositorySystemSession session, VersionRangeRequest request)
+      throws VersionRangeResolutionException {
+    if (ConfigUtils.getBoolean(session, false, RangeResolver.LOCK_BYPASS))
+      return delegate.resolveVersionRange(session, request);
+
+    LockFile lock = lock(session);
+    String locked = lock != null ? lock.version(request.getArtifact()) : null;
+    if (locked == null)
+      return delegate.resolveVersionRange(session, request);
+
+    VersionRangeResult result = new VersionRangeResult(request);
+    try {
+      result.setVersionConstraint(scheme.parseVersionConstraint(request.getArtifact().getVersion()));
+      Version version = scheme.parseVersion(locked);
+      result.addVersion(version);
+    }
+    catch (InvalidVersionSpecificationException e) {
+      throw new VersionRangeResolutionException(result);
+    }
+    return result;
+  }
+
+  /**
+   * The lock is read once per session, null when there is no lock or it has expired
+   */
+  private LockFile lock(RepositorySystemSession session) {
+    Optional<LockFile> lock = SessionSingletons.of(session, LockFile.class.getName(), Optional.class,
+      () -> Optional.ofNullable(read(session)));
+    return lock.orElse(null);
+  }
+
+  private LockFile read(RepositorySystemSession session) {
+    Path path = path(session);
+    if (path == null || !Files.isRegularFile(path))
+      return null;
+
+    try {
+      Duration timeToLive = Duration.ofMinutes(ConfigUtils.getLong(session, 0, "bounds.lockTimeToLive"));
+      if (!timeToLive.isZero()
+        && System.currentTimeMillis() - Files.getLastModifiedTime(path).toMillis() > timeToLive.toMillis())
+        return null;
+
+      return LockFile.read(path);
+    }
+    catch (IOException e) {
+      // without the lock the ranges are just resolved as usual
+      return null;
+    }
+  }
+
+  private Path path(RepositorySystemSession session) {
+    String lockFile = ConfigUtils.getString(session, null, "bounds.lockFile");
+    if (lockFile != null)
+      return Paths.get(lockFile);
+
+    String root = ConfigUtils.getString(session, null, "maven.multiModuleProjectDirectory");
+    return root != null ? Paths.get(root, ".mvn", "bounds.lock") : null;
+  }
+}
@@ -0,0 +1,146 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionScheme;
+
+/**
+ * A version parsed once into its leading numeric components and whatever qualifier follows them, so incrementing versions
+ * does not split strings over and over. 20.10.1.3.FINAL has the components 20, 10, 1 and 3 and the qualifier final.
+ *
+ * The ordering is the resolver's own, so qualifiers sort the way Maven sorts them, rc9 before rc10 and 1.0a1 as an alpha of
+ * 1.0. The resolver's version is parsed once and kept for comparing, the components are only split out when they are
+ * asked for, as sorting and picking the highest version never need them.
+ */
+public final class ParsedVersion
+    implements Comparable<ParsedVersion> {
+
+  private static final long[] NONE = new long[0];
+
+  private static final VersionScheme SCHEME = new GenericVersionScheme();
+
+  private final String text;
+
+  private final Version version;
+
+  private volatile Components components;
+
+  private ParsedVersion(String text, Version version) {
+    this.text = text;
+    this.version = version;
+  }
+
+  public static ParsedVersion parse(String text) {
+    try {
+      return parse(SCHEME.parseVersion(text));
+    }
+    catch (InvalidVersionSpecificationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Parse a version the resolver already has, its ordering is used as it is
+   */
+  public static ParsedVersion parse(Version version) {
+    return new ParsedVersion(version.toString(), version);
+  }
+
+  private Components components() {
+    Components split = components;
+    if (split == null) {
+      split = Components.split(text);
+      components = split;
+    }
+    return split;
+  }
+
+  /**
+   * How many numeric components were given
+   */
+  public int size() {
+    return components().values.length;
+  }
+
+  /**
+   * The numeric component, zero if the version does not have that many
+   */
+  public long component(int index) {
+    long[] values = components().values;
+    return index < values.length ? values[index] : 0;
+  }
+
+  public String getQualifier() {
+    return components().qualifier;
+  }
+
+  /**
+   * Only an upper case SNAPSHOT at the end counts, as the goals have always checked
+   */
+  public boolean isSnapshot() {
+    return text.endsWith("SNAPSHOT");
+  }
+
+  /**
+   * The major versions are the same, versions without any numbers have to be the same text
+   */
+  public boolean sameMajor(ParsedVersion other) {
+    if (size() == 0 || other.size() == 0)
+      return text.equals(other.text);
+
+    return component(0) == other.component(0);
+  }
+
+  @Override
+  public int compareTo(ParsedVersion other) {
+    return version.compareTo(other.version);
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+  private static final class Components {
+
+    private final long[] values;
+
+    private final String qualifier;
+
+    private Components(long[] values, String qualifier) {
+      this.values = values;
+      this.qualifier = qualifier;
+    }
+
+    static Components split(String text) {
+      long[] values = new long[4];
+      int size = 0;
+      int start = 0;
+      while (start < text.length()) {
+        int end = start;
+        while (end < text.length() && text.charAt(end) >= '0' && text.charAt(end) <= '9')
+          end++;
+
+        boolean numeric = end > start && end - start < 19 && (end == text.length() || isSeparator(text.charAt(end)));
+        if (!numeric)
+          break;
+
+        if (size == values.length)
+          values = Arrays.copyOf(values, size * 2);
+        values[size++] = Long.parseLong(text, start, end, 10);
+        start = end + 1;
+      }
+
+      String qualifier = start < text.length() ? text.substring(start).toLowerCase(Locale.ENGLISH) : "";
+      return new Components(size == 0 ? NONE : Arrays.copyOf(values, size), qualifier);
+    }
+
+    private static boolean isSeparator(char c) {
+      return c == '.' || c == '-';
+    }
+  }
+}
@@ -0,0 +1,357 @@
+package net.stickycode.plugin.bounds;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The bytes of a pom along with the changes to make to them.
+ *
+ * Rather than building a tree and serialising it again a streaming scan records where the text of each leaf element is, a
+ * change splices the new text into those bytes and everything else, formatting, attribute order, comments and line endings,
+ * is written back exactly as it was read. Only ASCII compatible encodings are supported which covers every pom in practice.
+ */
+public class PomDocument {
+
+  private static final Pattern ENCODING = Pattern.compile("^<\\?xml[^>]*encoding\\s*=\\s*[\"']([A-Za-z0-9._\\-]+)[\"']");
+
+  private final byte[] content;
+
+  private final Charset charset;
+
+  private final Map<Integer, Splice> splices = new TreeMap<>();
+
+  PomDocument(byte[] content) {
+    this.content = content;
+    this.charset = charset(content);
+  }
+
+  public static PomDocument load(File file) throws IOException {
+    return new PomDocument(Files.readAllBytes(file.toPath()));
+  }
+
+  public boolean isChanged() {
+    return !splices.isEmpty();
+  }
+
+  public byte[] toBytes() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 64);
+    int position = 0;
+    for (Splice splice : splices.values()) {
+      out.write(content, position, splice.start - position);
+      out.write(splice.replacement, 0, splice.replacement.length);
+      position = splice.end;
+    }
+    out.write(content, position, content.length - position);
+    return out.toByteArray();
+  }
+
+  public void write(File file) throws IOException {
+    Files.write(file.toPath(), toBytes());
+  }
+
+  @Override
+  public String toString() {
+    return new String(toBytes(), charset);
+  }
+
+  /**
+   * Walk the elements of the document in order telling the handler about each one, the text of elements without child
+   * elements is passed on as a {@link TextNode} that can be changed
+   */
+  public void scan(Handler handler) {
+    List<Open> open = new ArrayList<>();
+    int i = 0;
+    while (i < content.length) {
+      if (content[i] != '<') {
+        i++;
+        continue;
+      }
+
+      if (startsWith(i, "<?"))
+        i = after(i, "?>");
+      else if (startsWith(i, "<!--"))
+        i = after(i, "-->");
+      else if (startsWith(i, "<![CDATA["))
+        i = after(i, "]]>");
+      else if (startsWith(i, "<!"))
+        i = afterDeclaration(i);
+      else if (startsWith(i, "</")) {
+        int close = after(i, ">");
+        if (open.isEmpty())
+          throw new IllegalStateException("Unbalanced end tag at " + i);
+
+        Open element = open.remove(open.size() - 1);
+        if (!element.parent)
+          handler.text(element.name, new TextNode(element.qualifiedName, element.contentStart, i, false));
+        handler.end(element.name);
+        i = close;
+      }
+      else {
+        int close = endOfTag(i);
+        String qualifiedName = qualifiedName(i + 1, close);
+        String name = localName(qualifiedName);
+        if (!open.isEmpty())
+          open.get(open.size() - 1).parent = true;
+
+        handler.start(name);
+        if (content[close - 2] == '/') {
+          handler.text(name, new TextNode(qualifiedName, close - 2, close, true));
+          handler.end(name);
+        }
+        else
+          open.add(new Open(name, qualifiedName, close));
+        i = close;
+      }
+    }
+  }
+
+  private int endOfTag(int start) {
+    byte quote = 0;
+    for (int i = start; i < content.length; i++) {
+      byte b = content[i];
+      if (quote != 0) {
+        if (b == quote)
+          quote = 0;
+      }
+      else if (b == '"' || b == '\'')
+        quote = b;
+      else if (b == '>')
+        return i + 1;
+    }
+    throw new IllegalStateException("Unterminated tag at " + start);
+  }
+
+  /**
+   * A doctype can have an internal subset with its own angle brackets
+   */
+  private int afterDeclaration(int start) {
+    int depth = 0;
+    for (int i = start; i < content.length; i++) {
+      if (content[i] == '[')
+        depth++;
+      else if (content[i] == ']')
+        depth--;
+      else if (content[i] == '>' && depth == 0)
+        return i + 1;
+    }
+    throw new IllegalStateException("Unterminated declaration at " + start);
+  }
+
+  private String qualifiedName(int start, int close) {
+    int end = start;
+    while (end < close && !isNameEnd(content[end]))
+      end++;
+
+    return new String(content, start, end - start, StandardCharsets.US_ASCII);
+  }
+
+  private static String localName(String qualifiedName) {
+    int colon = qualifiedName.indexOf(':');
+    return colon < 0 ? qualifiedName : qualifiedName.substring(colon + 1);
+  }
+
+  private boolean isNameEnd(byte b) {
+    return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>';
+  }
+
+  private boolean startsWith(int position, String prefix) {
+    if (position + prefix.length() > content.length)
+      return false;
+
+    for (int i = 0; i < prefix.length(); i++)
+      if (content[position + i] != prefix.charAt(i))
+        return false;
+
+    return true;
+  }
+
+  private int after(int position, String terminator) {
+    for (int i = position; i <= content.length - terminator.length(); i++)
+      if (startsWith(i, terminator))
+        return i + terminator.length();
+
+    throw new IllegalStateException("Expected " + terminator + " after " + position);
+  }
+
+  /**
+   * The text of the element, comments are dropped, CDATA is unwrapped and entities are decoded
+   */
+  private String value(int start, int end) {
+    StringBuilder value = new StringBuilder();
+    int i = start;
+    while (i < end) {
+      if (startsWith(i, "<!--"))
+        i = after(i, "-->");
+      else if (startsWith(i, "<![CDATA[")) {
+        int close = after(i, "]]>");
+        value.append(new String(content, i + 9, close - 3 - i - 9, charset));
+        i = close;
+      }
+      else {
+        int next = i;
+        while (next < end && content[next] != '<')
+          next++;
+        value.append(unescape(new String(content, i, next - i, charset)));
+        i = next;
+      }
+    }
+    return value.toString();
+  }
+
+  static String unescape(String text) {
+    if (text.indexOf('&') < 0)
+      return text;
+
+    StringBuilder value = new StringBuilder(text.length());
+    int i = 0;
+    while (i < text.length()) {
+      char c = text.charAt(i);
+      int semicolon = c == '&' ? text.indexOf(';', i) : -1;
+      if (semicolon < 0) {
+        value.append(c);
+        i++;
+        continue;
+      }
+
+      String entity = text.substring(i + 1, semicolon);
+      if (entity.equals("lt"))
+        value.append('<');
+      else if (entity.equals("gt"))
+        value.append('>');
+      else if (entity.equals("amp"))
+        value.append('&');
+      else if (entity.equals("quot"))
+        value.append('"');
+      else if (entity.equals("apos"))
+        value.append('\'');
+      else if (entity.startsWith("#x"))
+        value.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+      else if (entity.startsWith("#"))
+        value.appendCodePoint(Integer.parseInt(entity.substring(1)));
+      else
+        value.append('&').append(entity).append(';');
+      i = semicolon + 1;
+    }
+    return value.toString();
+  }
+
+  static String escape(String text) {
+    return text.replace("&", "&amp;").replace("<", "&lt;");
+  }
+
+  private static Charset charset(byte[] content) {
+    if (content.length >= 2 && ((content[0] == (byte) 0xFE && content[1] == (byte) 0xFF)
+      || (content[0] == (byte) 0xFF && content[1] == (byte) 0xFE)))
+      throw new IllegalArgumentException("UTF-16 poms are not supported");
+
+    String start = new String(content, 0, Math.min(content.length, 200), StandardCharsets.ISO_8859_1);
+    if (start.startsWith("\u00EF\u00BB\u00BF"))
+      start = start.substring(3);
+
+    Matcher matcher = ENCODING.matcher(start);
+    if (matcher.find())
+      return Charset.forName(matcher.group(1));
+
+    return StandardCharsets.UTF_8;
+  }
+
+  /**
+   * Told about the elements of the document as they are scanned
+   */
+  public interface Handler {
+
+    void start(String name);
+
+    /**
+     * Called before {@link #end(String)} for elements that have no child elements
+     */
+    void text(String name, TextNode text);
+
+    void end(String name);
+  }
+
+  /**
+   * Where the text of a leaf element is in the document
+   */
+  public class TextNode {
+
+    /**
+     * The name as written in the start tag, prefix and all, so an empty element is closed with the same name
+     */
+    private final String qualifiedName;
+
+    private final int start;
+
+    private final int end;
+
+    private final boolean empty;
+
+    private String value;
+
+    TextNode(String qualifiedName, int start, int end, boolean empty) {
+      this.qualifiedName = qualifiedName;
+      this.start = start;
+      this.end = end;
+      this.empty = empty;
+      this.value = empty ? "" : PomDocument.this.value(start, end);
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    /**
+     * Splice the new value over the old one, an empty element like &lt;version/&gt; is opened up to hold it
+     */
+    public void setValue(String value) {
+      String text = escape(value);
+      if (empty)
+        text = ">" + text + "</" + qualifiedName + ">";
+
+      splices.put(start, new Splice(start, end, text.getBytes(charset)));
+      this.value = value;
+    }
+  }
+
+  private static class Splice {
+
+    private final int start;
+
+    private final int end;
+
+    private final byte[] replacement;
+
+    Splice(int start, int end, byte[] replacement) {
+      this.start = start;
+      this.end = end;
+      this.replacement = replacement;
+    }
+  }
+
+  private static class Open {
+
+    private final String name;
+
+    private final String qualifiedName;
+
+    private final int contentStart;
+
+    private boolean parent;
+
+    Open(String name, String qualifiedName, int contentStart) {
+      this.name = name;
+      this.qualifiedName = qualifiedName;
+      this.contentStart = contentStart;
+    }
+  }
+}
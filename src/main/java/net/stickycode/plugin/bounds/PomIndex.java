@@ -0,0 +1,237 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * The dependencies, managed dependencies and properties of a pom found in a single scan of the document, so updating them
+ * is a lookup rather than a query over the whole pom per artifact.
+ */
+public class PomIndex
+    implements PomDocument.Handler {
+
+  private final PomDocument document;
+
+  private final MavenProject project;
+
+  private final Map<String, List<DependencyElement>> dependencies = new HashMap<>();
+
+  private final Map<String, List<DependencyElement>> managedDependencies = new HashMap<>();
+
+  private final Map<String, PomDocument.TextNode> properties = new HashMap<>();
+
+  private final List<String> path = new ArrayList<>();
+
+  private String root;
+
+  private PomDocument.TextNode projectVersion;
+
+  private boolean propertiesFound;
+
+  private int propertiesDepth;
+
+  private int managementDepth;
+
+  private DependencyElement dependency;
+
+  private int dependencyDepth;
+
+  private PomIndex(PomDocument document, MavenProject project) {
+    this.document = document;
+    this.project = project;
+  }
+
+  /**
+   * @param project used to interpolate a groupId like ${project.groupId}, can be null
+   */
+  public static PomIndex build(PomDocument document, MavenProject project) {
+    PomIndex index = new PomIndex(document, project);
+    document.scan(index);
+    return index;
+  }
+
+  @Override
+  public void start(String name) {
+    String parent = path.isEmpty() ? null : path.get(path.size() - 1);
+    if (root == null)
+      root = name;
+    path.add(name);
+    if ("dependencyManagement".equals(name))
+      managementDepth++;
+    else if ("dependency".equals(name) && "dependencies".equals(parent) && dependency == null) {
+      dependency = new DependencyElement(managementDepth > 0);
+      dependencyDepth = path.size();
+    }
+    // like the pom only the first properties element is used
+    else if ("properties".equals(name) && !propertiesFound && dependency == null) {
+      propertiesFound = true;
+      propertiesDepth = path.size();
+    }
+  }
+
+  @Override
+  public void text(String name, PomDocument.TextNode text) {
+    int depth = path.size();
+    if (depth == 2 && "project".equals(path.get(0)) && "version".equals(name))
+      projectVersion = text;
+    else if (propertiesDepth > 0 && depth == propertiesDepth + 1)
+      properties.putIfAbsent(name, text);
+    else if (dependency != null && depth == dependencyDepth + 1)
+      dependency.field(name, text);
+  }
+
+  @Override
+  public void end(String name) {
+    if (dependency != null && path.size() == dependencyDepth) {
+      dependency.interpolate();
+      add(dependency.managed ? managedDependencies : dependencies, dependency);
+      dependency = null;
+    }
+    else if (path.size() == propertiesDepth)
+      propertiesDepth = 0;
+    else if ("dependencyManagement".equals(name))
+      managementDepth--;
+
+    path.remove(path.size() - 1);
+  }
+
+  private void add(Map<String, List<DependencyElement>> map, DependencyElement dependency) {
+    map.computeIfAbsent(dependency.key(), k -> new ArrayList<>()).add(dependency);
+  }
+
+  public PomDocument getDocument() {
+    return document;
+  }
+
+  /**
+   * The dependency elements with the artifacts group and artifact id, check {@link DependencyElement#matches(Artifact)} for
+   * classifier and type
+   */
+  public List<DependencyElement> dependencies(Artifact artifact) {
+    return find(dependencies, artifact);
+  }
+
+  public List<DependencyElement> managedDependencies(Artifact artifact) {
+    return find(managedDependencies, artifact);
+  }
+
+  private List<DependencyElement> find(Map<String, List<DependencyElement>> map, Artifact artifact) {
+    List<DependencyElement> exact = map.getOrDefault(artifact.getGroupId() + ":" + artifact.getArtifactId(),
+      Collections.emptyList());
+    List<DependencyElement> anyGroup = map.getOrDefault("*:" + artifact.getArtifactId(), Collections.emptyList());
+    if (anyGroup.isEmpty())
+      return exact;
+
+    List<DependencyElement> found = new ArrayList<>(exact);
+    found.addAll(anyGroup);
+    return found;
+  }
+
+  public PomDocument.TextNode property(String name) {
+    return properties.get(name);
+  }
+
+  public boolean isProject() {
+    return "project".equals(root);
+  }
+
+  /**
+   * The version element of the project itself, null if the version is inherited
+   */
+  public PomDocument.TextNode projectVersion() {
+    return projectVersion;
+  }
+
+  private static String text(PomDocument.TextNode text) {
+    return text != null ? text.getValue().trim() : null;
+  }
+
+  private String interpolate(String value) {
+    if (value == null || !value.startsWith("${") || !value.endsWith("}"))
+      return value;
+
+    if (project == null)
+      return null;
+
+    String name = value.substring(2, value.length() - 1);
+    if ("project.groupId".equals(name) || "pom.groupId".equals(name))
+      return project.getGroupId();
+
+    return project.getProperties().getProperty(name);
+  }
+
+  public class DependencyElement {
+
+    private final boolean managed;
+
+    private String groupId;
+
+    private String artifactId;
+
+    private String classifier;
+
+    private String type;
+
+    private PomDocument.TextNode version;
+
+    DependencyElement(boolean managed) {
+      this.managed = managed;
+    }
+
+    void field(String name, PomDocument.TextNode text) {
+      if ("groupId".equals(name))
+        groupId = text(text);
+      else if ("artifactId".equals(name))
+        artifactId = text(text);
+      else if ("classifier".equals(name))
+        classifier = text(text);
+      else if ("type".equals(name))
+        type = text(text);
+      else if ("version".equals(name))
+        version = text;
+    }
+
+    void interpolate() {
+      groupId = PomIndex.this.interpolate(groupId);
+    }
+
+    /**
+     * A group we could not work out matches any group, that is as good as the old artifactId only query
+     */
+    String key() {
+      return (groupId != null ? groupId : "*") + ":" + artifactId;
+    }
+
+    /**
+     * A dependency without a classifier or type applies to any, otherwise they must be the same as the artifact. An artifact
+     * without a type matches any type.
+     */
+    public boolean matches(Artifact artifact) {
+      if (classifier != null && !classifier.equals(artifact.getClassifier()))
+        return false;
+
+      if (type != null && !artifact.getExtension().isEmpty() && !type.equals(artifact.getExtension()))
+        return false;
+
+      return true;
+    }
+
+    public boolean hasVersion() {
+      return version != null;
+    }
+
+    public String getVersion() {
+      return version.getValue();
+    }
+
+    public void setVersion(String value) {
+      version.setValue(value);
+    }
+  }
+}
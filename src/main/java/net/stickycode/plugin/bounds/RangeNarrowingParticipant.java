@@ -0,0 +1,146 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.DefaultSessionData;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.version.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Raise the lower bound of the ranges of every module to the highest version known before the reactor builds, like
+ * bounds:update does but only in memory so no pom is changed. Active when the plugin is an extension and -Dbounds.narrow=true.
+ *
+ * With -Dbounds.narrowLocalOnly=true only the metadata already in the local repository is used, so narrowing never adds a
+ * download of its own. The number of ranges resolved at once is -Dbounds.narrowThreads (default 8), and
+ * -Dbounds.adaptiveConcurrency=true adapts how many each repository is asked at once as bounds:update does.
+ */
+@Named("bounds-narrowing")
+@Singleton
+public class RangeNarrowingParticipant
+    extends AbstractMavenLifecycleParticipant {
+
+  private final Logger log = LoggerFactory.getLogger(RangeNarrowingParticipant.class);
+
+  private final RepositorySystem repository;
+
+  @Inject
+  public RangeNarrowingParticipant(RepositorySystem repository) {
+    this.repository = repository;
+  }
+
+  @Override
+  public void afterProjectsRead(MavenSession session) {
+    if (!Boolean.parseBoolean(property(session, "bounds.narrow", "false")))
+      return;
+
+    RepositorySystemSession repositorySession = session.getRepositorySession();
+    if (Boolean.parseBoolean(property(session, "bounds.narrowLocalOnly", "false"))) {
+      // results from the local repository alone are not complete, so they are kept out of the cache the goals share
+      repositorySession = new DefaultRepositorySystemSession(repositorySession)
+        .setOffline(true)
+        .setData(new DefaultSessionData());
+    }
+
+    int threads = Integer.parseInt(property(session, "bounds.narrowThreads", "8"));
+    try (RangeResolver resolver = new RangeResolver(repository, repositorySession, threads)) {
+      if (Boolean.parseBoolean(property(session, "bounds.adaptiveConcurrency", "false")))
+        resolver.withLimits(RepositoryLimits.of(repositorySession), log::debug);
+
+      int narrowed = narrow(session.getProjects(), resolver);
+      log.info(String.format("Narrowed %d ranges of %d modules", narrowed, session.getProjects().size()));
+    }
+  }
+
+  /**
+   * Narrow the half open ranges of the modules that are not on other modules, a range that cannot be resolved is left alone
+   *
+   * @return the number of ranges narrowed
+   */
+  int narrow(List<MavenProject> reactor, RangeResolver resolver) {
+    Set<String> modules = new HashSet<>();
+    for (MavenProject module : reactor)
+      modules.add(module.getGroupId() + ":" + module.getArtifactId());
+
+    Map<Dependency, MavenProject> ranged = new IdentityHashMap<>();
+    for (MavenProject module : reactor) {
+      for (Dependency dependency : dependencies(module)) {
+        if (dependency.getVersion() == null || !VersionRange.parse(dependency.getVersion()).isHalfOpen())
+          continue;
+
+        if (modules.contains(dependency.getGroupId() + ":" + dependency.getArtifactId()))
+          continue;
+
+        resolver.prefetch(request(module, dependency));
+        ranged.put(dependency, module);
+      }
+    }
+
+    int narrowed = 0;
+    for (Map.Entry<Dependency, MavenProject> range : ranged.entrySet())
+      if (narrow(range.getValue(), range.getKey(), resolver))
+        narrowed++;
+
+    return narrowed;
+  }
+
+  private boolean narrow(MavenProject module, Dependency dependency, RangeResolver resolver) {
+    VersionRange range = VersionRange.parse(dependency.getVersion());
+    try {
+      Version highest = resolver.index(request(module, dependency)).highest(false);
+      if (highest == null)
+        return false;
+
+      String narrowed = range.withLowerBound(highest.toString());
+      if (narrowed.equals(dependency.getVersion()))
+        return false;
+
+      log.debug("Narrowed {}:{} from {} to {}", dependency.getGroupId(), dependency.getArtifactId(), range, narrowed);
+      dependency.setVersion(narrowed);
+      return true;
+    }
+    catch (RuntimeException e) {
+      log.debug("Left " + dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + range + " alone", e);
+      return false;
+    }
+  }
+
+  private List<Dependency> dependencies(MavenProject module) {
+    List<Dependency> dependencies = new ArrayList<>(module.getDependencies());
+    if (module.getDependencyManagement() != null)
+      dependencies.addAll(module.getDependencyManagement().getDependencies());
+    return dependencies;
+  }
+
+  private VersionRangeRequest request(MavenProject module, Dependency dependency) {
+    Artifact artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(),
+      dependency.getClassifier(), dependency.getType(), dependency.getVersion());
+    return new VersionRangeRequest(artifact, module.getRemoteProjectRepositories(), null);
+  }
+
+  private String property(MavenSession session, String name, String defaultValue) {
+    String value = session.getUserProperties().getProperty(name);
+    if (value == null)
+      value = session.getSystemProperties().getProperty(name);
+    return value != null ? value : defaultValue;
+  }
+}
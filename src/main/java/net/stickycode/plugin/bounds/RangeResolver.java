@@ -0,0 +1,623 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.ArtifactRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResolutionException;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataTransferException;
+import org.eclipse.aether.version.Version;
+
+/**
+ * Resolves version ranges, optionally ahead of time on a bounded pool of its own so all the ranges of a pom are fetched
+ * concurrently while the results are still consumed one at a time in pom order.
+ */
+public class RangeResolver
+    implements AutoCloseable {
+
+  private static final int RETRIES = 3;
+
+  /**
+   * Set on the session the plugin resolves with, so the lock extension leaves the goals to look at the repositories
+   */
+  static final String LOCK_BYPASS = "bounds.lock.bypass";
+
+  private final RepositorySystem repository;
+
+  private final RepositorySystemSession session;
+
+  private final int threads;
+
+  private final ResolutionCache cache;
+
+  private final Map<String, Future<VersionRangeResult>> prefetched = new ConcurrentHashMap<>();
+
+  private DiskVersionCache disk;
+
+  private RepositoryRoutes routes;
+
+  private RepositoryLimits limits;
+
+  private Consumer<String> limitsDebug;
+
+  private RepositoryGuard guard;
+
+  private TimeBudget budget;
+
+  private final List<String> skipped = Collections.synchronizedList(new ArrayList<>());
+
+  private ExecutorService executor;
+
+  private ExecutorService separate;
+
+  public RangeResolver(RepositorySystem repository, RepositorySystemSession session, int threads) {
+    this.repository = repository;
+    this.session = session;
+    this.threads = Math.max(1, threads);
+    this.cache = ResolutionCache.of(session);
+  }
+
+  /**
+   * A copy of the session that the lock extension does not answer, it shares the data and caches of the session it copies
+   */
+  static RepositorySystemSession bypassingLock(RepositorySystemSession session) {
+    if (session == null)
+      return null;
+
+    DefaultRepositorySystemSession bypassing = new DefaultRepositorySystemSession(session);
+    bypassing.setConfigProperty(LOCK_BYPASS, Boolean.TRUE);
+    return bypassing;
+  }
+
+  /**
+   * Also keep results on disk so later builds can skip the resolver
+   */
+  public RangeResolver withDiskCache(DiskVersionCache disk) {
+    this.disk = disk;
+    return this;
+  }
+
+  /**
+   * Only ask the repositories that had versions for the group before, the routes are saved when the resolver is closed
+   */
+  public RangeResolver withRoutes(RepositoryRoutes routes) {
+    this.routes = routes;
+    return this;
+  }
+
+  /**
+   * Adapt how many lookups each repository is asked at once to how it copes, backing off when it throttles. The changes to
+   * the limits are told to the debug log given.
+   */
+  public RangeResolver withLimits(RepositoryLimits limits, Consumer<String> debug) {
+    this.limits = limits;
+    this.limitsDebug = debug;
+    return this;
+  }
+
+  public RepositoryLimits getLimits() {
+    return limits;
+  }
+
+  /**
+   * Give each repository a deadline, leave out those that keep failing and race slow ones against their mirrors
+   */
+  public RangeResolver withGuard(RepositoryGuard guard) {
+    this.guard = guard;
+    return this;
+  }
+
+  public RepositoryGuard getGuard() {
+    return guard;
+  }
+
+  /**
+   * Stop waiting when the budget runs out, the outstanding lookups are cancelled and the ranges that are asked for after
+   * that are skipped rather than resolved
+   */
+  public RangeResolver withBudget(TimeBudget budget) {
+    this.budget = budget;
+    return this;
+  }
+
+  public TimeBudget getBudget() {
+    return budget;
+  }
+
+  /**
+   * The coordinates that were not resolved because the budget ran out, in the order they were asked for
+   */
+  public List<String> getSkipped() {
+    synchronized (skipped) {
+      return new ArrayList<>(skipped);
+    }
+  }
+
+  /**
+   * Start resolving the request in the background, a later call to {@link #resolve(VersionRangeRequest)} for the same request
+   * will wait for this result
+   */
+  public void prefetch(VersionRangeRequest request) {
+    if (budget != null && budget.isExpired())
+      return;
+
+    prefetched.computeIfAbsent(ResolutionCache.key(request), k -> executor().submit(() -> cached(request)));
+  }
+
+  /**
+   * Resolve the request, each call gets its own copy of the result so callers are free to filter it
+   */
+  public VersionRangeResult resolve(VersionRangeRequest request) {
+    return copy(request, result(request));
+  }
+
+  /**
+   * The versions for the request parsed and sorted, shared with every other caller of the same request
+   */
+  public VersionIndex index(VersionRangeRequest request) {
+    return cache.index(ResolutionCache.key(request), result(request));
+  }
+
+  private VersionRangeResult result(VersionRangeRequest request) {
+    Future<VersionRangeResult> future = prefetched.get(ResolutionCache.key(request));
+    if (budget == null)
+      return future == null ? cached(request) : await(future);
+
+    if (future == null && budget.isExpired()) {
+      // other modules may have resolved it in time
+      VersionRangeResult result = cache.get(ResolutionCache.key(request));
+      if (result != null)
+        return result;
+
+      throw expired(request);
+    }
+
+    if (future == null) {
+      prefetch(request);
+      future = prefetched.get(ResolutionCache.key(request));
+      if (future == null)
+        throw expired(request);
+    }
+
+    try {
+      return future.get(budget.remaining(), TimeUnit.NANOSECONDS);
+    }
+    catch (TimeoutException | CancellationException e) {
+      throw expired(request);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof TimeBudgetExpiredException)
+        throw expired(request);
+
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Cancel whatever is still outstanding, what has already been resolved is kept
+   */
+  private TimeBudgetExpiredException expired(VersionRangeRequest request) {
+    for (Future<VersionRangeResult> future : prefetched.values())
+      future.cancel(true);
+
+    String coordinate = request.getArtifact().getGroupId() + ":" + request.getArtifact().getArtifactId() + ":"
+      + request.getArtifact().getVersion();
+    skipped.add(coordinate);
+    return new TimeBudgetExpiredException(coordinate);
+  }
+
+  public ResolutionCache getCache() {
+    return cache;
+  }
+
+  private VersionRangeResult cached(VersionRangeRequest request) {
+    String key = ResolutionCache.key(request);
+    VersionRangeResult result = cache.get(key);
+    if (result != null)
+      return result;
+
+    return cache.singleFlight(key, () -> load(request));
+  }
+
+  private VersionRangeResult load(VersionRangeRequest request) {
+    if (disk != null) {
+      VersionRangeResult result = disk.get(request);
+      if (result != null) {
+        cache.diskHit();
+        return result;
+      }
+    }
+
+    VersionRangeResult result = routed(request);
+    // a lookup cut short by the budget is not worth remembering
+    if (budget != null && budget.isExpired())
+      throw new TimeBudgetExpiredException(request.getArtifact().toString());
+
+    if (disk != null)
+      disk.put(request, result);
+    return result;
+  }
+
+  /**
+   * Ask only the repositories on the route of the group when there is one. When they have no versions or fail all the
+   * repositories are asked and the route is learned again. A repository off the route is not asked until the route expires,
+   * so a newer version it publishes in the meantime is missed.
+   */
+  private VersionRangeResult routed(VersionRangeRequest request) {
+    if (routes == null)
+      return guarded(request);
+
+    String groupId = request.getArtifact().getGroupId();
+    List<RemoteRepository> routed = routes.route(groupId, request.getRepositories());
+    if (routed != null && routed.size() < request.getRepositories().size()) {
+      VersionRangeResult result = guarded(new VersionRangeRequest(request.getArtifact(), routed, request.getRequestContext()));
+      if (!result.getVersions().isEmpty() && result.getExceptions().isEmpty()) {
+        cache.routed();
+        return copy(request, result);
+      }
+
+      routes.forget(groupId);
+    }
+
+    VersionRangeResult result = guarded(request);
+    routes.learn(groupId, result);
+    return result;
+  }
+
+  /**
+   * Leave out the repositories that kept failing, and when they have deadlines, mirrors or limits ask each one on its own so
+   * a slow or busy one only holds up itself. A repository that misses its deadline or was left out is reported as a transfer
+   * failure in the result, so the result is not cached as if it were complete.
+   */
+  private VersionRangeResult guarded(VersionRangeRequest request) {
+    if (guard == null && limits == null || request.getRepositories().isEmpty())
+      return lookup(request);
+
+    if (guard == null)
+      return separately(request, request.getRepositories());
+
+    List<RemoteRepository> available = guard.available(request.getRepositories());
+    VersionRangeResult result = available.isEmpty() ? new VersionRangeResult(request) : available(request, available);
+    guard.leftOut(request, available, result);
+    return result;
+  }
+
+  private VersionRangeResult available(VersionRangeRequest request, List<RemoteRepository> available) {
+    if (limits == null && !guard.isSeparate()) {
+      long started = System.nanoTime();
+      VersionRangeResult result;
+      try {
+        result = lookup(single(request, available));
+      }
+      catch (RuntimeException e) {
+        guard.record(available, failure(request, e), System.nanoTime() - started);
+        throw e;
+      }
+      guard.record(available, result, System.nanoTime() - started);
+      return copy(request, result);
+    }
+
+    return separately(request, available);
+  }
+
+  /**
+   * Ask each repository on its own, at once on the separate pool unless there is only one and no deadline to keep
+   */
+  private VersionRangeResult separately(VersionRangeRequest request, List<RemoteRepository> available) {
+    if (available.size() == 1 && (guard == null || guard.getTimeout().isZero()))
+      return copy(request, hedged(request, available.get(0)));
+
+    Map<RemoteRepository, Future<VersionRangeResult>> lookups = new LinkedHashMap<>();
+    for (RemoteRepository repository : available)
+      lookups.put(repository, separate().submit(() -> hedged(request, repository)));
+
+    long deadline = guard != null ? System.nanoTime() + guard.getTimeout().toNanos() : 0;
+    List<VersionRangeResult> results = new ArrayList<>(lookups.size());
+    for (Map.Entry<RemoteRepository, Future<VersionRangeResult>> lookup : lookups.entrySet())
+      results.add(within(request, lookup.getKey(), lookup.getValue(), deadline));
+
+    return merge(request, results);
+  }
+
+  private VersionRangeResult within(VersionRangeRequest request, RemoteRepository repository,
+      Future<VersionRangeResult> future, long deadline) {
+    try {
+      if (guard == null || guard.getTimeout().isZero())
+        return future.get();
+
+      return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+    catch (TimeoutException e) {
+      future.cancel(true);
+      guard.timedOut(repository);
+      VersionRangeResult result = new VersionRangeResult(request);
+      result.addException(new MetadataTransferException(metadata(request), repository,
+        "Timed out after " + guard.getTimeout().toMillis() + "ms"));
+      return result;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      return failure(request, e.getCause());
+    }
+  }
+
+  /**
+   * Ask the repository, and when it takes longer than it usually does ask its mirror as well and take whichever answers first
+   */
+  private VersionRangeResult hedged(VersionRangeRequest request, RemoteRepository repository) {
+    RemoteRepository mirror = guard == null ? null : guard.mirror(repository);
+    long p95 = mirror == null ? 0 : guard.p95(repository);
+    if (p95 == 0)
+      return timed(request, repository);
+
+    CompletionService<VersionRangeResult> race = new ExecutorCompletionService<>(separate());
+    Future<VersionRangeResult> primary = race.submit(() -> timed(request, repository));
+    Future<VersionRangeResult> hedge = null;
+    try {
+      Future<VersionRangeResult> first = race.poll(p95, TimeUnit.NANOSECONDS);
+      if (first != null)
+        return first.get();
+
+      guard.hedged(repository);
+      hedge = race.submit(() -> mirrored(request, mirror, repository));
+      return race.take().get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new RuntimeException(e.getCause());
+    }
+    finally {
+      primary.cancel(true);
+      if (hedge != null)
+        hedge.cancel(true);
+    }
+  }
+
+  private VersionRangeResult timed(VersionRangeRequest request, RemoteRepository repository) {
+    List<RemoteRepository> repositories = Collections.singletonList(repository);
+    long started = System.nanoTime();
+    VersionRangeResult result;
+    try {
+      result = limited(single(request, repositories), repository);
+    }
+    catch (RuntimeException e) {
+      if (guard != null)
+        guard.record(repositories, failure(request, e), System.nanoTime() - started);
+      throw e;
+    }
+    if (guard != null)
+      guard.record(repositories, result, System.nanoTime() - started);
+    return result;
+  }
+
+  /**
+   * Look up within the limit of the repository, a throttled lookup is tried again after backing off
+   */
+  private VersionRangeResult limited(VersionRangeRequest request, RemoteRepository repository) {
+    if (limits == null)
+      return lookup(request);
+
+    for (int attempt = 0;; attempt++) {
+      List<RepositoryLimits.Limit> acquired = limits.acquire(Collections.singletonList(repository), threads);
+      long started = System.nanoTime();
+      VersionRangeResult result;
+      try {
+        result = lookup(request);
+      }
+      catch (RuntimeException e) {
+        limits.failed(acquired, System.nanoTime() - started, threads, limitsDebug);
+        throw e;
+      }
+
+      if (!limits.release(acquired, result, System.nanoTime() - started, threads, limitsDebug) || attempt == RETRIES)
+        return result;
+
+      backOff(attempt);
+    }
+  }
+
+  /**
+   * The versions the mirror has are credited to the repository it mirrors
+   */
+  private VersionRangeResult mirrored(VersionRangeRequest request, RemoteRepository mirror, RemoteRepository repository) {
+    VersionRangeResult found = lookup(single(request, Collections.singletonList(mirror)));
+    VersionRangeResult result = new VersionRangeResult(request);
+    for (Version version : found.getVersions()) {
+      result.addVersion(version);
+      result.setRepository(version, repository);
+    }
+    for (Exception exception : found.getExceptions())
+      result.addException(exception);
+    result.setVersionConstraint(found.getVersionConstraint());
+    return result;
+  }
+
+  private static VersionRangeRequest single(VersionRangeRequest request, List<RemoteRepository> repositories) {
+    return new VersionRangeRequest(request.getArtifact(), repositories, request.getRequestContext());
+  }
+
+  private static VersionRangeResult failure(VersionRangeRequest request, Throwable cause) {
+    VersionRangeResult result = new VersionRangeResult(request);
+    result.addException(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+    return result;
+  }
+
+  private static Metadata metadata(VersionRangeRequest request) {
+    return new DefaultMetadata(request.getArtifact().getGroupId(), request.getArtifact().getArtifactId(),
+      "maven-metadata.xml", Metadata.Nature.RELEASE_OR_SNAPSHOT);
+  }
+
+  /**
+   * The versions of every repository in order, a version found in more than one is credited to the first
+   */
+  static VersionRangeResult merge(VersionRangeRequest request, List<VersionRangeResult> results) {
+    Map<Version, ArtifactRepository> versions = new TreeMap<>();
+    VersionRangeResult merged = new VersionRangeResult(request);
+    for (VersionRangeResult result : results) {
+      for (Version version : result.getVersions())
+        versions.putIfAbsent(version, result.getRepository(version));
+      for (Exception exception : result.getExceptions())
+        merged.addException(exception);
+      if (result.getVersionConstraint() != null)
+        merged.setVersionConstraint(result.getVersionConstraint());
+    }
+    for (Map.Entry<Version, ArtifactRepository> version : versions.entrySet()) {
+      merged.addVersion(version.getKey());
+      merged.setRepository(version.getKey(), version.getValue());
+    }
+    return merged;
+  }
+
+  private void backOff(int attempt) {
+    try {
+      Thread.sleep(250L << attempt);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  VersionRangeResult lookup(VersionRangeRequest request) {
+    try {
+      return repository.resolveVersionRange(session, request);
+    }
+    catch (VersionRangeResolutionException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private VersionRangeResult await(Future<VersionRangeResult> future) {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private synchronized ExecutorService executor() {
+    if (executor == null)
+      executor = Executors.newFixedThreadPool(threads, new ResolverThreadFactory());
+
+    return executor;
+  }
+
+  /**
+   * The lookups of each repository are not limited by the pool, the resolver threads waiting on them already are
+   */
+  private synchronized ExecutorService separate() {
+    if (separate == null)
+      separate = Executors.newCachedThreadPool(new ResolverThreadFactory());
+
+    return separate;
+  }
+
+  static VersionRangeResult copy(VersionRangeRequest request, VersionRangeResult result) {
+    VersionRangeResult copy = new VersionRangeResult(request);
+    for (Version version : result.getVersions()) {
+      copy.addVersion(version);
+      copy.setRepository(version, result.getRepository(version));
+    }
+    for (Exception exception : result.getExceptions())
+      copy.addException(exception);
+    copy.setVersionConstraint(result.getVersionConstraint());
+    return copy;
+  }
+
+  /**
+   * Outstanding lookups are abandoned, which is what we want when failing fast
+   */
+  @Override
+  public synchronized void close() {
+    if (executor != null)
+      executor.shutdownNow();
+
+    if (separate != null)
+      separate.shutdownNow();
+
+    if (routes != null)
+      routes.save();
+  }
+
+  /**
+   * The lookups are blocking network calls so on Java 21 and later they run on virtual threads, the pool size still limits how
+   * many are in flight. Found reflectively as the plugin is built for Java 11.
+   */
+  private static class ResolverThreadFactory
+      implements ThreadFactory {
+
+    private static final ThreadFactory VIRTUAL = virtual();
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      if (VIRTUAL != null)
+        return VIRTUAL.newThread(runnable);
+
+      Thread thread = new Thread(runnable, "bounds-resolver-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+
+    private static ThreadFactory virtual() {
+      try {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Class<?> type = Class.forName("java.lang.Thread$Builder$OfVirtual");
+        builder = type.getMethod("name", String.class, long.class).invoke(builder, "bounds-resolver-", 1L);
+        return (ThreadFactory) type.getMethod("factory").invoke(builder);
+      }
+      catch (ReflectiveOperationException | RuntimeException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -1,69 +1,44 @@
 package net.stickycode.plugin.bounds;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import org.eclipse.aether.version.Version;
 
 public class RangeVersionMatch {
 
-  private Pattern rangePattern = Pattern.compile("\\[[0-9\\.\\-A-Za-z]+\\s*(,\\s*[0-9\\.\\-A-Za-z]*)?\\)");
-
-  private Pattern fixedPattern = Pattern.compile("\\[(([0-9]+)[0-9\\.\\-A-Za-z]*)\\]");
-
-  private Matcher rangeMatcher;
-
-  private Matcher fixedMatcher;
-
-  private String version;
+  private final VersionRange range;
 
   private boolean allowFixedContractBumps = false;
 
   public RangeVersionMatch(String version) {
-    this.version = version;
-    this.fixedMatcher = matchFixedVersion(version);
-    this.rangeMatcher = matchVersionRange(version);
-  }
-
-  Matcher matchVersionRange(String version) {
-    return rangePattern.matcher(version);
-  }
-
-  Matcher matchFixedVersion(String version) {
-    return fixedPattern.matcher(version);
+    this.range = VersionRange.parse(version);
   }
 
   public boolean matches() {
-    return fixedMatcher.matches() || rangeMatcher.matches();
+    return range.isFixed() || range.isHalfOpen();
   }
 
   public String newVersionRange(Version highestVersion) {
-    if (fixedMatcher.matches())
+    if (range.isFixed())
       return "[" + highestVersion + "]";
 
     return "[" + highestVersion.toString() + "," + majorVersionPlusOne(highestVersion) + ")";
   }
 
   public String getSearchRange() {
-    if (fixedMatcher.matches())
+    if (range.isFixed())
       if (allowFixedContractBumps)
-        return "[" + fixedMatcher.group(1) + ",)";
+        return "[" + range.getLower() + ",)";
       else
-        return "[" + fixedMatcher.group(1) + "," + majorVersionPlusOne(fixedMatcher.group(1)) + ")";
-
-    if (rangeMatcher.matches())
-      return version.replaceFirst(rangeMatcher.group(1), ",");
+        return "[" + range.getLower() + "," + majorVersionPlusOne(range.getLower()) + ")";
 
-    throw new VersionWasNotARangeException(version);
+    return range.withoutUpperBound();
   }
 
-  private Integer majorVersionPlusOne(Version highestVersion) {
+  private long majorVersionPlusOne(Version highestVersion) {
     return majorVersionPlusOne(highestVersion.toString());
   }
 
-  private Integer majorVersionPlusOne(String highestVersion) {
-    String[] split = highestVersion.split("\\.");
-    return Integer.valueOf(split[0]) + 1;
+  private long majorVersionPlusOne(String highestVersion) {
+    return ParsedVersion.parse(highestVersion).component(0) + 1;
   }
 
   public RangeVersionMatch allowFixedContractBump() {
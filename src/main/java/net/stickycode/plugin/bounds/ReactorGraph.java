@@ -0,0 +1,85 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Parent;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * The modules of the reactor ordered so each comes after the modules it depends on. Maven sorts the reactor too but only
+ * links a dependency to a module when the range contains the version of the module, the ranges being upgraded are the ones
+ * that may not, so here any reference by group and artifact id counts.
+ */
+public class ReactorGraph {
+
+  private final Map<String, MavenProject> modules = new LinkedHashMap<>();
+
+  private final Map<MavenProject, Set<MavenProject>> upstream = new LinkedHashMap<>();
+
+  private ReactorGraph(List<MavenProject> reactor) {
+    for (MavenProject module : reactor)
+      modules.put(key(module.getGroupId(), module.getArtifactId()), module);
+
+    for (MavenProject module : reactor) {
+      Set<MavenProject> dependsOn = new LinkedHashSet<>();
+      Parent parent = module.getModel().getParent();
+      if (parent != null)
+        link(dependsOn, module, parent.getGroupId(), parent.getArtifactId());
+
+      for (Dependency dependency : module.getDependencies())
+        link(dependsOn, module, dependency.getGroupId(), dependency.getArtifactId());
+
+      if (module.getDependencyManagement() != null)
+        for (Dependency dependency : module.getDependencyManagement().getDependencies())
+          link(dependsOn, module, dependency.getGroupId(), dependency.getArtifactId());
+
+      upstream.put(module, dependsOn);
+    }
+  }
+
+  /**
+   * The modules with their upstream modules first, otherwise the order given is kept. The modules of a cycle are left in the
+   * order given after everything that can be sorted.
+   */
+  public static List<MavenProject> sort(List<MavenProject> reactor) {
+    return new ReactorGraph(reactor).sorted();
+  }
+
+  private void link(Set<MavenProject> dependsOn, MavenProject module, String groupId, String artifactId) {
+    MavenProject other = modules.get(key(groupId, artifactId));
+    if (other != null && other != module)
+      dependsOn.add(other);
+  }
+
+  private List<MavenProject> sorted() {
+    List<MavenProject> sorted = new ArrayList<>(upstream.size());
+    Set<MavenProject> done = new LinkedHashSet<>();
+    boolean progress = true;
+    while (progress) {
+      progress = false;
+      for (Map.Entry<MavenProject, Set<MavenProject>> module : upstream.entrySet()) {
+        if (!done.contains(module.getKey()) && done.containsAll(module.getValue())) {
+          sorted.add(module.getKey());
+          done.add(module.getKey());
+          progress = true;
+        }
+      }
+    }
+
+    for (MavenProject module : upstream.keySet())
+      if (!done.contains(module))
+        sorted.add(module);
+
+    return sorted;
+  }
+
+  private static String key(String groupId, String artifactId) {
+    return groupId + ":" + artifactId;
+  }
+}
@@ -0,0 +1,54 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What changed in each module when a goal works on the whole reactor, reported as a table once every pom is written
+ */
+public class ReactorSummary {
+
+  private final List<Row> rows = new ArrayList<>();
+
+  public void add(String module, List<String> changes) {
+    rows.add(new Row(module, changes));
+  }
+
+  public int changedModules() {
+    int changed = 0;
+    for (Row row : rows)
+      if (!row.changes.isEmpty())
+        changed++;
+    return changed;
+  }
+
+  @Override
+  public String toString() {
+    int width = "Module".length();
+    for (Row row : rows)
+      width = Math.max(width, row.module.length());
+
+    StringBuilder table = new StringBuilder();
+    table.append(String.format("Changed %d of %d modules%n", changedModules(), rows.size()));
+    table.append(String.format("  %-" + width + "s  %7s  %s%n", "Module", "Changes", "Versions"));
+    for (Row row : rows) {
+      String first = row.changes.isEmpty() ? "-" : row.changes.get(0);
+      table.append(String.format("  %-" + width + "s  %7d  %s%n", row.module, row.changes.size(), first));
+      for (int i = 1; i < row.changes.size(); i++)
+        table.append(String.format("  %-" + width + "s  %7s  %s%n", "", "", row.changes.get(i)));
+    }
+    return table.toString();
+  }
+
+  private static class Row {
+
+    private final String module;
+
+    private final List<String> changes;
+
+    Row(String module, List<String> changes) {
+      this.module = module;
+      this.changes = changes;
+    }
+  }
+}
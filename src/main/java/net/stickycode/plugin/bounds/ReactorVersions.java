@@ -0,0 +1,100 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.WorkspaceReader;
+
+/**
+ * The versions of artifacts we know without asking a repository, the modules of the reactor, the artifacts of the workspace
+ * and the versions modules were bumped to by an upgrade earlier in the same execution
+ */
+public class ReactorVersions {
+
+  private final Map<String, String> versions = new HashMap<>();
+
+  private final Set<String> pending = new HashSet<>();
+
+  private boolean snapshots = true;
+
+  private WorkspaceReader workspace;
+
+  /**
+   * The modules of the reactor with the versions they declare, SNAPSHOT versions only count when snapshots is true
+   */
+  public static ReactorVersions declared(List<MavenProject> reactor, boolean snapshots) {
+    ReactorVersions reactorVersions = new ReactorVersions();
+    reactorVersions.snapshots = snapshots;
+    for (MavenProject module : reactor)
+      if (module != null && module.getVersion() != null && reactorVersions.counts(module.getVersion()))
+        reactorVersions.versions.put(key(module.getGroupId(), module.getArtifactId()), module.getVersion());
+    return reactorVersions;
+  }
+
+  /**
+   * Also ask the workspace, which knows about artifacts built outside the reactor like those of other projects open in an
+   * IDE
+   */
+  public ReactorVersions withWorkspace(WorkspaceReader workspace) {
+    this.workspace = workspace;
+    return this;
+  }
+
+  /**
+   * The versions of these modules may change before they are asked for so there is no point looking them up ahead of time
+   */
+  public ReactorVersions cascade(List<MavenProject> reactor) {
+    for (MavenProject module : reactor)
+      pending.add(key(module.getGroupId(), module.getArtifactId()));
+    return this;
+  }
+
+  public boolean isPending(Artifact artifact) {
+    return pending.contains(key(artifact.getGroupId(), artifact.getArtifactId()));
+  }
+
+  /**
+   * The version a module now has, it counts whether or not its a SNAPSHOT as the module was changed to it on purpose
+   */
+  public void put(MavenProject module, String version) {
+    versions.put(key(module.getGroupId(), module.getArtifactId()), version);
+  }
+
+  /**
+   * The version we know of within the range of the artifact, null when the repositories need to be asked
+   */
+  public String version(Artifact artifact) {
+    VersionRange range = VersionRange.parse(artifact.getVersion());
+    String key = key(artifact.getGroupId(), artifact.getArtifactId());
+    String version = versions.get(key);
+    if (version != null)
+      return range.contains(version) ? version : null;
+
+    if (workspace == null || pending.contains(key))
+      return null;
+
+    ParsedVersion highest = null;
+    for (String found : workspace.findVersions(artifact)) {
+      if (!counts(found) || !range.contains(found))
+        continue;
+
+      ParsedVersion parsed = ParsedVersion.parse(found);
+      if (highest == null || parsed.compareTo(highest) > 0)
+        highest = parsed;
+    }
+    return highest == null ? null : highest.toString();
+  }
+
+  private boolean counts(String version) {
+    return snapshots || !ParsedVersion.parse(version).isSnapshot();
+  }
+
+  private static String key(String groupId, String artifactId) {
+    return groupId + ":" + artifactId;
+  }
+}
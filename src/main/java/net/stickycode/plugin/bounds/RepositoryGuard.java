@@ -0,0 +1,236 @@
+package net.stickycode.plugin.bounds;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+
+/**
+ * Keeps one slow or broken repository from holding up every lookup. Each repository can be given a deadline, one that keeps
+ * failing is left out for the rest of the build and one that is slower than usual can be raced against a mirror with the
+ * same content.
+ *
+ * What is known about each repository is shared by every resolver of the build.
+ */
+public class RepositoryGuard {
+
+  private static final int SAMPLES = 100;
+
+  private static final int ENOUGH_SAMPLES = 20;
+
+  private final Map<String, Health> health;
+
+  private final Duration timeout;
+
+  private final int failures;
+
+  private final Map<String, RemoteRepository> mirrors = new ConcurrentHashMap<>();
+
+  private final Map<String, String> mirrorUrls;
+
+  /**
+   * @param timeout how long to wait on each repository, zero to wait as long as the resolver does
+   * @param failures how many failures in a row leave a repository out for the rest of the build, zero to never leave one out
+   * @param mirrorUrls the url of a mirror with the same content by repository id, to race a lookup that is slower than usual
+   */
+  RepositoryGuard(Map<String, Health> health, Duration timeout, int failures, Map<String, String> mirrorUrls) {
+    this.health = health;
+    this.timeout = timeout;
+    this.failures = failures;
+    this.mirrorUrls = mirrorUrls != null ? mirrorUrls : Collections.emptyMap();
+  }
+
+  public static RepositoryGuard of(RepositorySystemSession session, Duration timeout, int failures,
+      Map<String, String> mirrorUrls) {
+    return new RepositoryGuard(health(session), timeout, failures, mirrorUrls);
+  }
+
+  private static Map<String, Health> health(RepositorySystemSession session) {
+    return SessionSingletons.of(session, RepositoryGuard.class.getName(), Repositories.class, Repositories::new);
+  }
+
+  /**
+   * Each repository is asked on its own when they have deadlines or mirrors, so a slow one only holds up itself
+   */
+  public boolean isSeparate() {
+    return !timeout.isZero() || !mirrorUrls.isEmpty();
+  }
+
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * The repositories that have not been left out
+   */
+  public List<RemoteRepository> available(List<RemoteRepository> repositories) {
+    List<RemoteRepository> available = new ArrayList<>(repositories.size());
+    for (RemoteRepository repository : repositories)
+      if (!health(repository).isOpen())
+        available.add(repository);
+    return available;
+  }
+
+  /**
+   * The mirror to race the repository against, null if it has none
+   */
+  public RemoteRepository mirror(RemoteRepository repository) {
+    String url = mirrorUrls.get(repository.getId());
+    if (url == null)
+      return null;
+
+    return mirrors.computeIfAbsent(repository.getId(), id -> new RemoteRepository.Builder(repository)
+      .setId(id + "-mirror")
+      .setUrl(url)
+      .build());
+  }
+
+  /**
+   * The 95th percentile latency of the repository, zero until enough lookups have been seen
+   */
+  public long p95(RemoteRepository repository) {
+    return health(repository).p95();
+  }
+
+  /**
+   * Record how a lookup against the repositories went, failures count against the repository they came from
+   */
+  public void record(List<RemoteRepository> repositories, VersionRangeResult result, long nanos) {
+    for (RemoteRepository repository : repositories) {
+      if (failed(repository, result))
+        failed(repository);
+      else
+        health(repository).succeeded(nanos);
+    }
+  }
+
+  public void timedOut(RemoteRepository repository) {
+    health(repository).timeouts.incrementAndGet();
+    failed(repository);
+  }
+
+  public void hedged(RemoteRepository repository) {
+    health(repository).hedges.incrementAndGet();
+  }
+
+  /**
+   * Report each repository that was left out as a transfer failure of the result, so a result that is missing their
+   * versions is not taken for a complete answer
+   */
+  public void leftOut(VersionRangeRequest request, List<RemoteRepository> available, VersionRangeResult result) {
+    for (RemoteRepository repository : request.getRepositories())
+      if (!available.contains(repository))
+        result.addException(new MetadataTransferException(new DefaultMetadata(request.getArtifact().getGroupId(),
+          request.getArtifact().getArtifactId(), "maven-metadata.xml", Metadata.Nature.RELEASE_OR_SNAPSHOT), repository,
+          "Left out after " + failures + " failures in a row"));
+  }
+
+  private void failed(RemoteRepository repository) {
+    health(repository).failed(failures);
+  }
+
+  private boolean failed(RemoteRepository repository, VersionRangeResult result) {
+    for (Exception exception : result.getExceptions()) {
+      if (exception instanceof MetadataNotFoundException)
+        continue;
+
+      if (exception instanceof MetadataTransferException && ((MetadataTransferException) exception).getRepository() != null
+        && !repository.getId().equals(((MetadataTransferException) exception).getRepository().getId()))
+        continue;
+
+      return true;
+    }
+    return false;
+  }
+
+  private Health health(RemoteRepository repository) {
+    return health.computeIfAbsent(repository.getId(), id -> new Health(id));
+  }
+
+  /**
+   * A line for each repository that timed out, was left out or was hedged, empty when they all behaved
+   */
+  public String summary() {
+    StringBuilder summary = new StringBuilder();
+    for (Health each : new TreeMap<>(health).values())
+      if (each.timeouts.get() > 0 || each.hedges.get() > 0 || each.isOpen())
+        summary.append(String.format("%n  %s", each));
+
+    return summary.length() == 0 ? "" : "Repository health:" + summary;
+  }
+
+  static class Health {
+
+    private final String id;
+
+    private final long[] samples = new long[SAMPLES];
+
+    private int sampled;
+
+    private int failuresInARow;
+
+    private boolean open;
+
+    private final AtomicInteger timeouts = new AtomicInteger();
+
+    private final AtomicInteger hedges = new AtomicInteger();
+
+    Health(String id) {
+      this.id = id;
+    }
+
+    synchronized boolean isOpen() {
+      return open;
+    }
+
+    synchronized void succeeded(long nanos) {
+      failuresInARow = 0;
+      samples[sampled++ % SAMPLES] = nanos;
+    }
+
+    synchronized void failed(int threshold) {
+      failuresInARow++;
+      if (threshold > 0 && failuresInARow >= threshold)
+        open = true;
+    }
+
+    synchronized long p95() {
+      int count = Math.min(sampled, SAMPLES);
+      if (count < ENOUGH_SAMPLES)
+        return 0;
+
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      return sorted[(int) Math.ceil(count * 0.95) - 1];
+    }
+
+    @Override
+    public synchronized String toString() {
+      return String.format("%s: %s, %d timed out, %d hedged", id, open ? "left out after failing" : "available",
+        timeouts.get(), hedges.get());
+    }
+  }
+
+  /**
+   * What is known of each repository, a class of our own so what another realm knows is told apart
+   */
+  private static class Repositories
+      extends ConcurrentHashMap<String, Health> {
+
+    private static final long serialVersionUID = 1L;
+  }
+}
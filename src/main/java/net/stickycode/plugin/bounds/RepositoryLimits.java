@@ -0,0 +1,218 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+
+/**
+ * How many lookups each remote repository is asked at once, adjusted as the build goes. The limit starts at half the pool
+ * size, creeps up by one per limit's worth of lookups while the latency stays close to the best seen, and halves when the
+ * repository throttles with a 429 or 503 or fails a transfer, so a busy repository manager gets fewer requests rather than
+ * more errors.
+ *
+ * The limits are shared by every resolver of the build and never go above the pool size of the resolver asking. The
+ * resolver asks each repository on its own, so a repository that is throttled only slows its own lookups.
+ */
+public class RepositoryLimits {
+
+  private static final Pattern THROTTLED = Pattern.compile("\\b(429|503)\\b|Too Many Requests|Service Unavailable");
+
+  private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+  /**
+   * The limits for this build, created by whichever resolver asks first
+   */
+  public static RepositoryLimits of(RepositorySystemSession session) {
+    return SessionSingletons.of(session, RepositoryLimits.class.getName(), RepositoryLimits.class, RepositoryLimits::new);
+  }
+
+  /**
+   * Wait for a slot on every repository of the lookup, taken in the order of their ids so lookups cannot deadlock
+   */
+  public List<Limit> acquire(List<RemoteRepository> repositories, int ceiling) {
+    Map<String, Limit> ordered = new TreeMap<>();
+    for (RemoteRepository repository : repositories)
+      ordered.put(repository.getId(), limits.computeIfAbsent(repository.getId(), id -> new Limit(id, ceiling)));
+
+    List<Limit> acquired = new ArrayList<>(ordered.size());
+    try {
+      for (Limit limit : ordered.values()) {
+        limit.acquire(ceiling);
+        acquired.add(limit);
+      }
+    }
+    catch (InterruptedException e) {
+      for (Limit limit : acquired)
+        limit.cancel();
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    return acquired;
+  }
+
+  /**
+   * Give the slots back and adjust each limit by how its repository did, a limit that changes is told to the debug log of
+   * the caller
+   *
+   * @return true if any repository throttled the lookup
+   */
+  public boolean release(List<Limit> acquired, VersionRangeResult result, long nanos, int ceiling, Consumer<String> debug) {
+    boolean throttled = false;
+    for (Limit limit : acquired) {
+      Outcome outcome = outcome(limit.id, result);
+      throttled |= outcome == Outcome.THROTTLED;
+      report(limit.release(outcome, nanos, ceiling), debug);
+    }
+    return throttled;
+  }
+
+  /**
+   * The lookup failed outright so count it against every repository
+   */
+  public void failed(List<Limit> acquired, long nanos, int ceiling, Consumer<String> debug) {
+    for (Limit limit : acquired)
+      report(limit.release(Outcome.ERROR, nanos, ceiling), debug);
+  }
+
+  private void report(String change, Consumer<String> debug) {
+    if (change != null)
+      debug.accept(change);
+  }
+
+  private Outcome outcome(String repositoryId, VersionRangeResult result) {
+    Outcome outcome = Outcome.OK;
+    for (Exception exception : result.getExceptions()) {
+      if (exception instanceof MetadataNotFoundException)
+        continue;
+
+      if (exception instanceof MetadataTransferException && ((MetadataTransferException) exception).getRepository() != null
+        && !repositoryId.equals(((MetadataTransferException) exception).getRepository().getId()))
+        continue;
+
+      if (isThrottled(exception))
+        return Outcome.THROTTLED;
+
+      outcome = Outcome.ERROR;
+    }
+    return outcome;
+  }
+
+  static boolean isThrottled(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause())
+      if (cause.getMessage() != null && THROTTLED.matcher(cause.getMessage()).find())
+        return true;
+
+    return false;
+  }
+
+  public String summary() {
+    StringBuilder summary = new StringBuilder("Repository limits:");
+    for (Limit limit : new TreeMap<>(limits).values())
+      summary.append(String.format("%n  %s", limit));
+    return summary.toString();
+  }
+
+  enum Outcome {
+    OK, THROTTLED, ERROR
+  }
+
+  public static class Limit {
+
+    private final String id;
+
+    private double limit;
+
+    private int inFlight;
+
+    private double baseline;
+
+    private int lowest;
+
+    private int highest;
+
+    private long lookups;
+
+    private long throttled;
+
+    private long errors;
+
+    Limit(String id, int ceiling) {
+      this.id = id;
+      // room to grow, a repository that cannot take the whole pool is not hit with it on the first lookups
+      this.limit = Math.max(1, ceiling / 2);
+      this.lowest = (int) limit;
+      this.highest = (int) limit;
+    }
+
+    synchronized void acquire(int ceiling) throws InterruptedException {
+      while (inFlight >= Math.min(Math.max(1, (int) limit), Math.max(1, ceiling)))
+        wait();
+      inFlight++;
+    }
+
+    /**
+     * Give the slot back without the lookup being made
+     */
+    synchronized void cancel() {
+      inFlight--;
+      notifyAll();
+    }
+
+    /**
+     * @return what changed when the limit did, otherwise null
+     */
+    synchronized String release(Outcome outcome, long nanos, int ceiling) {
+      int before = (int) limit;
+      inFlight--;
+      lookups++;
+      if (outcome == Outcome.OK) {
+        if (baseline == 0 || nanos < baseline)
+          baseline = nanos;
+        else
+          baseline += (nanos - baseline) / 20;
+
+        // latency that has doubled means the repository is already busy, hold the limit rather than add to it
+        if (nanos <= 2 * baseline)
+          limit = Math.min(Math.max(1, ceiling), limit + 1 / limit);
+      }
+      else {
+        if (outcome == Outcome.THROTTLED)
+          throttled++;
+        else
+          errors++;
+        limit = Math.max(1, limit / 2);
+      }
+
+      lowest = Math.min(lowest, (int) limit);
+      highest = Math.max(highest, (int) limit);
+      notifyAll();
+      if (before == (int) limit)
+        return null;
+
+      return String.format("Limit of %s went from %d to %d after a lookup that was %s in %d ms", id, before, (int) limit,
+        outcome.name().toLowerCase(Locale.ENGLISH), TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    synchronized int getLimit() {
+      return (int) limit;
+    }
+
+    @Override
+    public synchronized String toString() {
+      return String.format("%s: limit %d (lowest %d, highest %d), %d lookups, %d throttled, %d failed",
+        id, (int) limit, lowest, highest, lookups, throttled, errors);
+    }
+  }
+}
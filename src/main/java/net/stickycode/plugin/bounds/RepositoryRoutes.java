@@ -0,0 +1,188 @@
+package net.stickycode.plugin.bounds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.aether.repository.ArtifactRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.version.Version;
+
+/**
+ * Which repositories had versions for a group, learned from the lookups and kept on disk so later builds only ask those
+ * repositories. A group without a route of its own uses the route of the longest group it is within, so a route for
+ * net.stickycode also covers net.stickycode.composite.
+ *
+ * Until a route expires the repositories off it are not asked, so a newer version only they have is missed. When the
+ * repositories it names have no versions or fail the lookup is made against all of them again.
+ */
+public class RepositoryRoutes {
+
+  private final Path file;
+
+  private final Duration timeToLive;
+
+  private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean changed = new AtomicBoolean();
+
+  private Clock clock = Clock.systemUTC();
+
+  public RepositoryRoutes(Path file, Duration timeToLive) {
+    this.file = file;
+    this.timeToLive = timeToLive;
+  }
+
+  RepositoryRoutes withClock(Clock clock) {
+    this.clock = clock;
+    return this;
+  }
+
+  /**
+   * Read the routes learned by earlier builds, an unreadable or corrupt file is the same as no routes
+   */
+  public RepositoryRoutes load() {
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      properties.load(in);
+    }
+    catch (NoSuchFileException e) {
+      return this;
+    }
+    catch (IOException e) {
+      return this;
+    }
+
+    Map<String, Route> loaded = new ConcurrentHashMap<>();
+    try {
+      for (String groupId : properties.stringPropertyNames()) {
+        String[] value = properties.getProperty(groupId).split(" ", 2);
+        if (value.length == 2)
+          loaded.put(groupId, new Route(Long.parseLong(value[0]), Arrays.asList(value[1].split(","))));
+      }
+    }
+    catch (NumberFormatException e) {
+      // a corrupt file is ignored, the routes are learned again and overwrite it
+      return this;
+    }
+
+    routes.putAll(loaded);
+    return this;
+  }
+
+  /**
+   * The repositories to ask for the group, null when there is no route that is still fresh or the route names a repository
+   * that is not in the list
+   */
+  public List<RemoteRepository> route(String groupId, List<RemoteRepository> repositories) {
+    Route route = find(groupId);
+    if (route == null || clock.millis() - route.learned > timeToLive.toMillis())
+      return null;
+
+    List<RemoteRepository> routed = new ArrayList<>(route.repositories.size());
+    for (String id : route.repositories) {
+      RemoteRepository repository = repository(id, repositories);
+      if (repository == null)
+        return null;
+      routed.add(repository);
+    }
+    return routed;
+  }
+
+  private Route find(String groupId) {
+    String prefix = groupId;
+    while (true) {
+      Route route = routes.get(prefix);
+      if (route != null)
+        return route;
+
+      int dot = prefix.lastIndexOf('.');
+      if (dot < 0)
+        return null;
+      prefix = prefix.substring(0, dot);
+    }
+  }
+
+  private RemoteRepository repository(String id, List<RemoteRepository> repositories) {
+    for (RemoteRepository repository : repositories)
+      if (repository.getId().equals(id))
+        return repository;
+
+    return null;
+  }
+
+  /**
+   * Remember the remote repositories that had versions in a lookup against all of them
+   */
+  public void learn(String groupId, VersionRangeResult result) {
+    Set<String> repositories = new LinkedHashSet<>();
+    for (Version version : result.getVersions()) {
+      ArtifactRepository repository = result.getRepository(version);
+      if (repository instanceof RemoteRepository)
+        repositories.add(repository.getId());
+    }
+
+    if (repositories.isEmpty())
+      return;
+
+    Route route = new Route(clock.millis(), new ArrayList<>(repositories));
+    Route previous = routes.put(groupId, route);
+    if (previous == null || !previous.repositories.equals(route.repositories) || previous.learned != route.learned)
+      changed.set(true);
+  }
+
+  /**
+   * The route did not find anything or failed so forget it, the lookup against all the repositories will learn a new one
+   */
+  public void forget(String groupId) {
+    if (routes.remove(groupId) != null)
+      changed.set(true);
+  }
+
+  /**
+   * Write the routes if any were learned or forgotten, failing to write them does not fail the build
+   */
+  public void save() {
+    if (!changed.getAndSet(false))
+      return;
+
+    Properties properties = new Properties();
+    for (Map.Entry<String, Route> route : new TreeMap<>(routes).entrySet())
+      properties.setProperty(route.getKey(), route.getValue().learned + " " + String.join(",", route.getValue().repositories));
+
+    try {
+      AtomicFiles.write(file,
+        out -> properties.store(out, "the repositories that had versions for each group, learned by the bounds plugin"));
+    }
+    catch (IOException e) {
+      // the routes are an optimisation, the next build just learns them again
+    }
+  }
+
+  private static class Route {
+
+    private final long learned;
+
+    private final List<String> repositories;
+
+    Route(long learned, List<String> repositories) {
+      this.learned = learned;
+      this.repositories = repositories;
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+
+/**
+ * Version range results for the whole build, hung off the repository session so every module and every goal shares them.
+ */
+public class ResolutionCache {
+
+  private final Map<String, VersionRangeResult> results = new ConcurrentHashMap<>();
+
+  private final Map<String, CompletableFuture<VersionRangeResult>> inFlight = new ConcurrentHashMap<>();
+
+  private final Map<String, VersionIndex> indexes = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong diskHits = new AtomicLong();
+
+  private final AtomicLong coalesced = new AtomicLong();
+
+  private final AtomicLong routed = new AtomicLong();
+
+  private final AtomicBoolean purged = new AtomicBoolean();
+
+  private final AtomicBoolean lineSeparatorNoted = new AtomicBoolean();
+
+  /**
+   * The cache for this build, created by whichever mojo asks first
+   */
+  public static ResolutionCache of(RepositorySystemSession session) {
+    return SessionSingletons.of(session, ResolutionCache.class.getName(), ResolutionCache.class, ResolutionCache::new);
+  }
+
+  public VersionRangeResult get(String key) {
+    VersionRangeResult result = results.get(key);
+    if (result != null)
+      hits.incrementAndGet();
+    else
+      misses.incrementAndGet();
+
+    return result;
+  }
+
+  /**
+   * Only clean results are kept, a failed lookup might work when another module asks
+   */
+  public void put(String key, VersionRangeResult result) {
+    if (isClean(result))
+      results.put(key, result);
+  }
+
+  /**
+   * The sorted versions of a result, built once for a cached result and shared from then on
+   */
+  public VersionIndex index(String key, VersionRangeResult result) {
+    if (results.get(key) != result)
+      return VersionIndex.of(result);
+
+    return indexes.computeIfAbsent(key, k -> VersionIndex.of(result));
+  }
+
+  /**
+   * Metadata that is not found is an answer not a failure, an artifact is often only in some of the repositories
+   */
+  public static boolean isClean(VersionRangeResult result) {
+    for (Exception exception : result.getExceptions())
+      if (!(exception instanceof MetadataNotFoundException))
+        return false;
+
+    return true;
+  }
+
+  /**
+   * A clean answer with no versions, either the artifact is missing or nothing has been released in the range
+   */
+  public static boolean isNegative(VersionRangeResult result) {
+    return result.getVersions().isEmpty() && isClean(result);
+  }
+
+  /**
+   * The negative cache should only be purged once per build not by every module
+   */
+  public boolean claimPurge() {
+    return purged.compareAndSet(false, true);
+  }
+
+  /**
+   * The note that the line separator is not used should only be logged once per build not by every module
+   */
+  public boolean claimLineSeparatorNote() {
+    return lineSeparatorNoted.compareAndSet(false, true);
+  }
+
+  /**
+   * Run the lookup for a key that missed, unless another thread is already looking it up in which case wait for and share its
+   * result. Failures are shared with the waiters too but are not cached.
+   */
+  public VersionRangeResult singleFlight(String key, Supplier<VersionRangeResult> lookup) {
+    CompletableFuture<VersionRangeResult> mine = new CompletableFuture<>();
+    CompletableFuture<VersionRangeResult> theirs = inFlight.putIfAbsent(key, mine);
+    if (theirs != null) {
+      coalesced.incrementAndGet();
+      return join(theirs);
+    }
+
+    try {
+      // the lookup we missed might have finished between the miss and claiming the key
+      VersionRangeResult result = results.get(key);
+      if (result == null) {
+        result = lookup.get();
+        put(key, result);
+      }
+      mine.complete(result);
+      return result;
+    }
+    catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    }
+    finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  private VersionRangeResult join(CompletableFuture<VersionRangeResult> future) {
+    try {
+      return future.join();
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+
+      throw e;
+    }
+  }
+
+  /**
+   * A miss here that was answered from the disk cache
+   */
+  public void diskHit() {
+    diskHits.incrementAndGet();
+  }
+
+  public long getDiskHits() {
+    return diskHits.get();
+  }
+
+  /**
+   * A lookup answered by only the repositories on the route of its group
+   */
+  public void routed() {
+    routed.incrementAndGet();
+  }
+
+  public long getRouted() {
+    return routed.get();
+  }
+
+  /**
+   * How many lookups were saved by waiting on an identical one already in flight
+   */
+  public long getCoalesced() {
+    return coalesced.get();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public String summary() {
+    return String.format("Version range cache: %d hits, %d misses (%d answered from disk, %d shared with a lookup in flight, %d routed), %d ranges cached",
+      getHits(), getMisses(), getDiskHits(), getCoalesced(), getRouted(), results.size());
+  }
+
+  /**
+   * The key covers the coordinates, the range and the repositories along with their release and snapshot policies as they all
+   * change what a resolution returns
+   */
+  public static String key(VersionRangeRequest request) {
+    return key(request.getArtifact(), request.getArtifact().getVersion(), request.getRepositories());
+  }
+
+  /**
+   * The key for an artifact regardless of the range, used to remember an artifact that is missing altogether
+   */
+  public static String missingKey(VersionRangeRequest request) {
+    return key(request.getArtifact(), "", request.getRepositories());
+  }
+
+  private static String key(Artifact artifact, String range, List<RemoteRepository> repositories) {
+    StringBuilder key = new StringBuilder()
+      .append(artifact.getGroupId()).append(':')
+      .append(artifact.getArtifactId()).append(':')
+      .append(artifact.getExtension()).append(':')
+      .append(artifact.getClassifier()).append(':')
+      .append(range);
+
+    for (RemoteRepository remote : repositories) {
+      key.append('|').append(remote.getId()).append('=').append(remote.getUrl());
+      policy(key.append(";releases="), remote.getPolicy(false));
+      policy(key.append(";snapshots="), remote.getPolicy(true));
+    }
+
+    return key.toString();
+  }
+
+  private static void policy(StringBuilder key, RepositoryPolicy policy) {
+    if (policy.isEnabled())
+      key.append(policy.getUpdatePolicy());
+    else
+      key.append("disabled");
+  }
+}
@@ -0,0 +1,29 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.function.Supplier;
+
+import org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * One instance per build kept in the session data, created by whichever module asks first.
+ *
+ * The plugin can be loaded into more than one realm, an instance from another realm is not of the type this realm knows so
+ * it is replaced rather than used.
+ */
+final class SessionSingletons {
+
+  private SessionSingletons() {
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> T of(RepositorySystemSession session, Object key, Class<?> type, Supplier<T> create) {
+    while (true) {
+      Object existing = session.getData().get(key);
+      if (type.isInstance(existing))
+        return (T) existing;
+
+      if (session.getData().set(key, existing, create.get()))
+        return (T) session.getData().get(key);
+    }
+  }
+}
@@ -1,76 +1,26 @@
 package net.stickycode.plugin.bounds;
 
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import org.apache.maven.model.Dependency;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.apache.maven.project.MavenProject;
-import org.eclipse.aether.RepositorySystem;
-import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
-import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.VersionRangeRequest;
-import org.eclipse.aether.resolution.VersionRangeResolutionException;
-import org.eclipse.aether.resolution.VersionRangeResult;
 import org.eclipse.aether.version.Version;
 
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Element;
-import nu.xom.Elements;
-import nu.xom.Node;
-import nu.xom.Nodes;
-import nu.xom.ParentNode;
-import nu.xom.ParsingException;
-import nu.xom.Serializer;
-import nu.xom.ValidityException;
-import nu.xom.XPathContext;
-
 /**
  * Update the lower bounds of a version range to match the current version. e.g. [1.1,2) might go to [1.3,2)
  */
 @Mojo(threadSafe = true, name = "update", requiresDirectInvocation = true)
 public class StickyBoundsMojo
-    extends AbstractMojo {
-
-  /**
-   * The Maven Project.
-   */
-  @Parameter(defaultValue = "${project}", required = true, readonly = true)
-  private MavenProject project;
-
-  /**
-   * The entry point to Aether, i.e. the component doing all the work.
-   * 
-   */
-  @Component
-  private RepositorySystem repository;
-
-  /**
-   * The current repository/network configuration of Maven.
-   */
-  @Parameter(defaultValue = "${repositorySystemSession}", required = true, readonly = true)
-  private RepositorySystemSession session;
-
-  private Pattern range = Pattern.compile("\\[[0-9.\\-A-Za-z]+\\s*,\\s*([0-9.\\-A-Za-z]+)?\\)");
-
-  /**
-   * The project's remote repositories to use for the resolution.
-   */
-  @Parameter(defaultValue = "${project.remoteProjectRepositories}", required = true, readonly = true)
-  private List<RemoteRepository> repositories;
+    extends AbstractBoundsMojo {
 
   @Parameter(defaultValue = "false")
   private Boolean includeSnapshots = false;
@@ -82,19 +32,65 @@ public class StickyBoundsMojo
   private Boolean failImmediately = false;
 
   /**
-   * The line separator used when rewriting the pom, this to defaults to your platform encoding but if you fix your encoding despite
-   * platform then you should use that.
+   * How many seconds all the resolution of the build may take, 0 for no limit. What was resolved in time is still written
+   * and the ranges that were skipped are reported, as a failure when failing immediately
+   */
+  @Parameter(defaultValue = "0")
+  private int timeBudget = 0;
+
+  /**
+   * The number of version ranges resolved concurrently, the results are still applied to the pom one at a time in declaration
+   * order
+   */
+  @Parameter(defaultValue = "8")
+  private int resolverThreads = 8;
+
+  /**
+   * No longer has any effect, only the versions that change are rewritten and the rest of the pom keeps the line separators
+   * it has.
+   *
+   * @deprecated the poms keep their line separators
    */
   @Parameter
   private LineSeparator lineSeparator = LineSeparator.defaultValue();
 
-  Matcher matchVersion(String version) {
-    return range.matcher(version);
+  private RangeResolver resolver;
+
+  private final Map<PomDocument, PomIndex> indexes = new IdentityHashMap<>();
+
+  private final List<String> changes = new ArrayList<>();
+
+  VersionRange matchVersion(String version) {
+    return VersionRange.parse(version);
   }
 
   @Override
   public void execute() throws MojoExecutionException {
-    Document pom = load();
+    PomDocument pom = load();
+    boolean changed;
+    List<String> skipped;
+
+    try (RangeResolver resolver = newResolver(resolverThreads)) {
+      use(resolver);
+      prefetch(index(pom));
+
+      changed = update(pom);
+
+      reportResolution(resolver);
+      skipped = resolver.getSkipped();
+    }
+
+    if (changed) {
+      writeChanges(pom);
+    }
+
+    reportSkipped(skipped);
+  }
+
+  /**
+   * Apply the resolved ranges to the pom of the current project
+   */
+  boolean update(PomDocument pom) throws MojoExecutionException {
     boolean changed = false;
 
     changed |= processProperties(pom);
@@ -103,37 +99,86 @@ public class StickyBoundsMojo
 
     changed |= processDependencyManagement(pom);
 
-    if (changed) {
-      writeChanges(pom);
+    return changed;
+  }
+
+  void use(RangeResolver resolver) {
+    this.resolver = resolver;
+  }
+
+  int getResolverThreads() {
+    return resolverThreads;
+  }
+
+  @Override
+  protected int getTimeBudget() {
+    return timeBudget;
+  }
+
+  void reportSkipped(List<String> skipped) throws MojoExecutionException {
+    reportSkipped(skipped, failImmediately);
+  }
+
+  /**
+   * The versions changed since last asked, for the summary of the goals that work on the whole reactor
+   */
+  List<String> takeChanges() {
+    List<String> taken = new ArrayList<>(changes);
+    changes.clear();
+    return taken;
+  }
+
+  /**
+   * Start resolving every range we are going to look at so the network calls overlap, the process methods then pick up the
+   * results in order
+   */
+  void prefetch(PomIndex index) {
+    for (String propertyName : declaredVersionProperties(index)) {
+      Dependency dependency = dependencyUsingVersionProperty(propertyName);
+      if (dependency != null)
+        prefetch(dependency, project.getProperties().getProperty(propertyName));
     }
+
+    for (Dependency dependency : declaredDependencies(index))
+      prefetch(dependency, dependency.getVersion());
+
+    for (Dependency dependency : declaredManagedDependencies(index))
+      prefetch(dependency, dependency.getVersion());
   }
 
-  private boolean processDependencyManagement(Document pom)
+  private void prefetch(Dependency dependency, String version) {
+    if (version == null || !matchVersion(version).isHalfOpen())
+      return;
+
+    Artifact artifact = artifact(dependency, version);
+    if (reactorVersion(artifact) == null)
+      resolver.prefetch(rangeRequest(artifact));
+  }
+
+  private boolean processDependencyManagement(PomDocument pom)
       throws MojoExecutionException {
     boolean changed = false;
-    if (project.getDependencyManagement() != null) {
-      for (Dependency dependency : project.getDependencyManagement().getDependencies()) {
-        try {
-          String version = dependency.getVersion();
-          Artifact artifact = resolveLatestVersionRange(dependency, dependency.getVersion());
+    for (Dependency dependency : declaredManagedDependencies(index(pom))) {
+      try {
+        String version = dependency.getVersion();
+        Artifact artifact = resolveLatestVersionRange(dependency, dependency.getVersion());
 
-          if (!artifact.getVersion().equals(version)) {
-            updateDependencyManagement(pom, artifact, artifact.getVersion());
-            changed |= true;
-          }
-        }
-        catch (MojoExecutionException e) {
-          fail(e);
+        if (!artifact.getVersion().equals(version)) {
+          updateDependencyManagement(pom, artifact, artifact.getVersion());
+          changed |= true;
         }
       }
+      catch (MojoExecutionException e) {
+        fail(e);
+      }
     }
     return changed;
   }
 
-  private boolean processDependencies(Document pom)
+  private boolean processDependencies(PomDocument pom)
       throws MojoExecutionException {
     boolean changed = false;
-    for (Dependency dependency : project.getDependencies()) {
+    for (Dependency dependency : declaredDependencies(index(pom))) {
       try {
         String version = dependency.getVersion();
         Artifact artifact = resolveLatestVersionRange(dependency, dependency.getVersion());
@@ -150,29 +195,28 @@ public class StickyBoundsMojo
     return changed;
   }
 
-  private boolean processProperties(Document pom)
+  private boolean processProperties(PomDocument pom)
       throws MojoExecutionException {
     boolean changed = false;
-    for (String propertyName : project.getProperties().stringPropertyNames()) {
-      if (propertyName.endsWith(".version")) {
-        try {
-          final String version = project.getProperties().getProperty(propertyName);
-          Dependency dependency = findDependencyUsingVersionProperty(propertyName);
-          if (dependency != null) {
-            Artifact artifact = resolveLatestVersionRange(dependency, version);
-            if (!artifact.getVersion().equals(version)) {
-              updateProperty(pom, propertyName, artifact.getVersion());
-              changed |= true;
-            }
-          }
-          else {
-            getLog().warn("No dependency found using " + propertyName);
+    for (String propertyName : declaredVersionProperties(index(pom))) {
+      try {
+        final String version = project.getProperties().getProperty(propertyName);
+        Dependency dependency = dependencyUsingVersionProperty(propertyName);
+        if (dependency != null) {
+          warnAboutVersionProperty(dependency);
+          Artifact artifact = resolveLatestVersionRange(dependency, version);
+          if (!artifact.getVersion().equals(version)) {
+            updateProperty(pom, propertyName, artifact.getVersion());
+            changed |= true;
           }
         }
-        catch (MojoExecutionException e) {
-          fail(e);
+        else {
+          getLog().warn("No dependency found using " + propertyName);
         }
       }
+      catch (MojoExecutionException e) {
+        fail(e);
+      }
     }
     return changed;
   }
@@ -187,153 +231,99 @@ public class StickyBoundsMojo
   }
 
   private Artifact resolveLatestVersionRange(Dependency dependency, String version) throws MojoExecutionException {
-    Matcher versionMatch = matchVersion(version);
-    Artifact artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(),
-      dependency.getClassifier(), dependency.getType(), version);
+    VersionRange versionMatch = matchVersion(version);
+    Artifact artifact = artifact(dependency, version);
 
-    if (versionMatch.matches()) {
+    if (versionMatch.isHalfOpen()) {
 
       Version highestVersion = highestVersion(artifact);
-      String upperVersion = versionMatch.group(1) != null
-        ? versionMatch.group(1)
-        : "";
-      String newVersion = "[" + highestVersion.toString() + "," + upperVersion + ")";
+      if (highestVersion == null)
+        return artifact;
 
-      artifact = artifact.setVersion(newVersion);
-      return artifact;
+      return artifact.setVersion(versionMatch.withLowerBound(highestVersion.toString()));
     }
     else {
       return artifact;
     }
   }
 
-  private Dependency findDependencyUsingVersionProperty(String propertyName) {
-    for (Dependency dependency : project.getDependencies()) {
-      if (propertyName.equals(dependency.getArtifactId() + ".version")) {
-        getLog()
-          .warn(
-            "If you use dependency composition then you will find that version properties "
-              + "are really not that useful. Its an extra indirection that often you don't need. "
-              + "IMO people take the magic number refactoring too far");
-        return dependency;
-      }
-    }
-    if (project.getDependencyManagement() != null) {
-      for (Dependency dependency : project.getDependencyManagement().getDependencies()) {
-        if (propertyName.equals(dependency.getArtifactId() + ".version")) {
-          getLog()
-            .warn(
-              "Dependency Management is an anti pattern, think OO or functional, "
-                + "dependencies should be composed NOT inherited");
-          return dependency;
-        }
-      }
-    }
-    return null;
+  private Artifact artifact(Dependency dependency, String version) {
+    return new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(),
+      dependency.getClassifier(), dependency.getType(), version);
   }
 
-  private void writeChanges(Document pom) {
-    Serializer serializer = createSerialiser();
+  void writeChanges(PomDocument pom) {
+    noteLineSeparator(lineSeparator);
+
     try {
-      serializer.write(pom);
+      pom.write(project.getFile());
     }
     catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  private Serializer createSerialiser() {
-    try {
-      Serializer serializer = new StickySerializer(new FileOutputStream(project.getFile()), "UTF-8");
-      if (!System.lineSeparator().equals(lineSeparator.value()))
-        getLog().info(String.format("The line separator is configured to %s, not using system line separator", lineSeparator));
-
-      serializer.setLineSeparator(lineSeparator.value());
-      return serializer;
-    }
-    catch (UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
-    catch (FileNotFoundException e) {
-      throw new RuntimeException(e);
-    }
+  private VersionRangeRequest rangeRequest(Artifact artifact) {
+    return new VersionRangeRequest(artifact, repositories, null);
   }
 
   private Version highestVersion(Artifact artifact) throws MojoExecutionException {
-    VersionRangeRequest request = new VersionRangeRequest(artifact, repositories, null);
-    VersionRangeResult v = resolve(request);
-
-    if (!includeSnapshots) {
-      List<Version> filtered = new ArrayList<Version>();
-      for (Version aVersion : v.getVersions()) {
-        if (!aVersion.toString().endsWith("SNAPSHOT")) {
-          filtered.add(aVersion);
-        }
-      }
-      v.setVersions(filtered);
+    Version reactorVersion = reactorVersion(artifact);
+    if (reactorVersion != null)
+      return reactorVersion;
+
+    VersionIndex versions;
+    try {
+      versions = resolver.index(rangeRequest(artifact));
     }
+    catch (TimeBudgetExpiredException e) {
+      getLog().debug(e.getMessage());
+      return null;
+    }
+
+    Version highest = versions.highest(includeSnapshots);
 
-    if (v.getHighestVersion() == null) {
-      throw (v.getExceptions().isEmpty())
+    if (highest == null) {
+      throw (versions.getExceptions().isEmpty())
         ? new MojoExecutionException("Failed to resolve " + artifact.toString())
-        : new MojoExecutionException("Failed to resolve " + artifact.toString(), v.getExceptions().get(0));
+        : new MojoExecutionException("Failed to resolve " + artifact.toString(), versions.getExceptions().get(0));
     }
 
-    return v.getHighestVersion();
+    return highest;
   }
 
-  void updateProperty(Document pom, String propertyName, String newVersion) throws MojoExecutionException {
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-    Nodes nodes = pom.query("//mvn:properties", context);
-
-    if (nodes.size() > 0) {
-      final Element propertiesElement = (Element) nodes.get(0);
-      Elements properties = propertiesElement.getChildElements();
-      for (int i = 0; i < properties.size(); i++) {
-        Element property = properties.get(i);
-        if (property.getLocalName().equals(propertyName)) {
-          Element newRange = new Element(propertyName, "http://maven.apache.org/POM/4.0.0");
-          newRange.appendChild(newVersion);
-          propertiesElement.replaceChild(property, newRange);
-        }
-      }
+  void updateProperty(PomDocument pom, String propertyName, String newVersion) throws MojoExecutionException {
+    PomDocument.TextNode property = index(pom).property(propertyName);
+    if (property != null) {
+      changes.add(propertyName + " " + property.getValue() + " -> " + newVersion);
+      property.setValue(newVersion);
     }
   }
 
-  void updateDependency(Document pom, Artifact artifact, String oldVersion) throws MojoExecutionException {
-    updateDependency(pom, dependencyPath(artifact.getArtifactId()), oldVersion, artifact);
+  void updateDependency(PomDocument pom, Artifact artifact, String oldVersion) throws MojoExecutionException {
+    updateDependency(index(pom).dependencies(artifact), oldVersion, artifact);
   }
 
-  void updateDependencyManagement(Document pom, Artifact artifact, String oldVersion) throws MojoExecutionException {
-    updateDependency(pom, dependencyManagementPath(artifact.getArtifactId()), oldVersion, artifact);
+  void updateDependencyManagement(PomDocument pom, Artifact artifact, String oldVersion) throws MojoExecutionException {
+    updateDependency(index(pom).managedDependencies(artifact), oldVersion, artifact);
   }
 
-  private void updateDependency(Document pom, String dependencyPath, String oldVersion, Artifact artifact)
+  private void updateDependency(List<PomIndex.DependencyElement> dependencies, String oldVersion, Artifact artifact)
       throws MojoExecutionException {
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-    Nodes nodes = pom.query(dependencyPath, context);
-
-    if (nodes.size() == 0) {
+    if (dependencies.isEmpty()) {
       throw new MojoExecutionException(String.format("Missing <dependency> element for dependency %s, skipping.",
         artifact.getArtifactId()));
     }
 
-    for (int i = 0; i < nodes.size(); i++) {
-      Node node = nodes.get(i);
-      ParentNode dependency = node.getParent();
-      Nodes classifier = dependency.query("mvn:classifier", context);
-      if (classifier.size() != 0)
-        if (!classifier.get(0).getValue().equals(artifact.getClassifier()))
-          return;
+    for (PomIndex.DependencyElement dependency : dependencies) {
+      if (!dependency.matches(artifact))
+        continue;
 
-      final Nodes versionNodes = dependency.query("mvn:version", context);
-      if (versionNodes.size() > 0) {
+      if (dependency.hasVersion()) {
         getLog().info("Updating dependency to " + artifact.toString() + " from " + oldVersion);
-        Element version = (Element) versionNodes.get(0);
-        if (!version.getValue().startsWith("${") || updateProperties) {
-          Element newRange = new Element("version", "http://maven.apache.org/POM/4.0.0");
-          newRange.appendChild(artifact.getVersion());
-          dependency.replaceChild(version, newRange);
+        if (!dependency.getVersion().startsWith("${") || updateProperties) {
+          changes.add(artifact.getArtifactId() + " " + dependency.getVersion() + " -> " + artifact.getVersion());
+          dependency.setVersion(artifact.getVersion());
         }
       }
       else {
@@ -343,36 +333,20 @@ public class StickyBoundsMojo
     }
   }
 
-  private String dependencyPath(String artifactId) {
-    return "//mvn:dependencies/mvn:dependency/mvn:artifactId[text()='" + artifactId + "']";
-  }
-
-  private String dependencyManagementPath(String artifactId) {
-    return "//mvn:dependencyManagement/mvn:dependencies/mvn:dependency/mvn:artifactId[text()='" + artifactId + "']";
+  /**
+   * The index is built once per document, the tests hand us documents directly and the reactor goals hold one per module
+   */
+  PomIndex index(PomDocument pom) {
+    return indexes.computeIfAbsent(pom, p -> PomIndex.build(p, project));
   }
 
-  private Document load() {
+  PomDocument load() {
     try {
-      return new Builder().build(project.getFile());
-    }
-    catch (ValidityException e) {
-      throw new RuntimeException(e);
-    }
-    catch (ParsingException e) {
-      throw new RuntimeException(e);
+      return PomDocument.load(project.getFile());
     }
     catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  private VersionRangeResult resolve(VersionRangeRequest request) {
-    try {
-      return repository.resolveVersionRange(session, request);
-    }
-    catch (VersionRangeResolutionException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
 }
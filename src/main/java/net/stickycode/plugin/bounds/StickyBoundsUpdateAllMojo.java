@@ -0,0 +1,56 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Update the lower bounds of the version ranges of every module in the reactor in one go. All the poms are read first so
+ * each distinct range is resolved once and concurrently, then the changed poms are written.
+ */
+@Mojo(threadSafe = true, name = "update-all", aggregator = true, requiresDirectInvocation = true)
+public class StickyBoundsUpdateAllMojo
+    extends StickyBoundsMojo {
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    Map<MavenProject, PomDocument> poms = new LinkedHashMap<>();
+    ReactorSummary summary = new ReactorSummary();
+
+    List<String> skipped;
+
+    try (RangeResolver resolver = newResolver(getResolverThreads())) {
+      use(resolver);
+      for (MavenProject module : reactor()) {
+        select(module);
+        PomDocument pom = load();
+        poms.put(module, pom);
+        prefetch(index(pom));
+      }
+
+      for (Map.Entry<MavenProject, PomDocument> module : poms.entrySet()) {
+        select(module.getKey());
+        update(module.getValue());
+        summary.add(module.getKey().getArtifactId(), takeChanges());
+      }
+
+      reportResolution(resolver, true);
+      skipped = resolver.getSkipped();
+    }
+
+    for (Map.Entry<MavenProject, PomDocument> module : poms.entrySet()) {
+      if (module.getValue().isChanged()) {
+        select(module.getKey());
+        writeChanges(module.getValue());
+      }
+    }
+
+    getLog().info(summary.toString());
+    reportSkipped(skipped);
+  }
+
+}
@@ -0,0 +1,110 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Upgrade the version ranges of every module in the reactor in one go. All the poms are read first so each distinct range
+ * is resolved once and concurrently, then the changed poms are written with their major versions bumped as needed.
+ */
+@Mojo(threadSafe = true, name = "upgrade-all", aggregator = true, requiresDirectInvocation = true)
+public class StickyBoundsUpgradeAllMojo
+    extends StickyBoundsUpgradeMojo {
+
+  /**
+   * Upgrade the modules upstream first and give the versions they are bumped to straight to the modules downstream, so
+   * a contract change cascades through the reactor in one execution without looking the bumped modules up in a repository.
+   * Incremental is ignored when cascading.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean cascade = false;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    Map<MavenProject, PomDocument> poms = new LinkedHashMap<>();
+    ReactorSummary summary = new ReactorSummary();
+    List<MavenProject> reactor = cascade ? ReactorGraph.sort(reactor()) : reactor();
+    ReactorVersions reactorVersions = cascade ? reactorVersions().cascade(reactor) : reactorVersions();
+
+    List<String> skipped;
+
+    // a cascade changes modules downstream after the state was checked
+    if (cascade && isIncremental())
+      getLog().warn("Upgrading every module as incremental is ignored when cascading, a cascade changes modules after they are checked");
+    IncrementalState state = cascade ? null : incrementalState();
+
+    try (RangeResolver resolver = newResolver(getResolverThreads())) {
+      use(resolver);
+      for (MavenProject module : reactor) {
+        select(module);
+        if (isUnchanged(state))
+          continue;
+
+        PomDocument pom = load();
+        poms.put(module, pom);
+        prefetch(index(pom));
+      }
+
+      for (Map.Entry<MavenProject, PomDocument> module : poms.entrySet()) {
+        select(module.getKey());
+        upgrade(module.getValue());
+        remember(state, module.getValue());
+        if (cascade)
+          cascade(reactorVersions, module.getKey(), module.getValue());
+        summary.add(module.getKey().getArtifactId(), takeChanges());
+      }
+
+      reportResolution(resolver, true);
+      skipped = resolver.getSkipped();
+    }
+
+    for (Map.Entry<MavenProject, PomDocument> module : poms.entrySet()) {
+      if (module.getValue().isChanged()) {
+        select(module.getKey());
+        writeChanges(module.getValue());
+      }
+    }
+
+    if (state != null)
+      state.save();
+
+    getLog().info(summary.toString());
+    reportSkipped(skipped);
+  }
+
+  /**
+   * A cascaded release starts the new major at its first minor version as next-version does, 3.7-SNAPSHOT goes to
+   * 4.1-SNAPSHOT, so the modules downstream can take it as their lower bound
+   */
+  @Override
+  String bumpedVersion(String version) {
+    return cascade ? cascadedVersion(version) : super.bumpedVersion(version);
+  }
+
+  static String cascadedVersion(String version) {
+    int qualifier = version.indexOf('-');
+    return (ParsedVersion.parse(version).component(0) + 1) + ".1" + (qualifier < 0 ? "" : version.substring(qualifier));
+  }
+
+  /**
+   * Hand the version a module was bumped to on to the modules downstream. They take the release as their lower bound, as
+   * a SNAPSHOT lower bound would only hold until the module is released, unless snapshots are included.
+   */
+  void cascade(ReactorVersions reactorVersions, MavenProject module, PomDocument pom) {
+    PomDocument.TextNode version = index(pom).projectVersion();
+    if (version == null || version.getValue().equals(module.getVersion()))
+      return;
+
+    String bumped = version.getValue();
+    if (!isIncludeSnapshots() && bumped.endsWith("-SNAPSHOT"))
+      bumped = bumped.substring(0, bumped.length() - "-SNAPSHOT".length());
+    reactorVersions.put(module, bumped);
+  }
+
+}
@@ -1,74 +1,34 @@
 package net.stickycode.plugin.bounds;
 
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.maven.model.Dependency;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
-import org.eclipse.aether.RepositorySystem;
-import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.VersionRangeRequest;
-import org.eclipse.aether.resolution.VersionRangeResolutionException;
-import org.eclipse.aether.resolution.VersionRangeResult;
 import org.eclipse.aether.version.Version;
 
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Element;
-import nu.xom.Elements;
-import nu.xom.Node;
-import nu.xom.Nodes;
-import nu.xom.ParentNode;
-import nu.xom.ParsingException;
-import nu.xom.Serializer;
-import nu.xom.ValidityException;
-import nu.xom.XPathContext;
-
 /**
  * Upgrade the lower bounds of a version range to match the highest version. e.g. [1.1,2) might go to [2.7,3)
  */
 @Mojo(threadSafe = true, name = "upgrade", requiresDirectInvocation = false, requiresProject = true)
 public class StickyBoundsUpgradeMojo
-    extends AbstractMojo {
-
-  /**
-   * The Maven Project.
-   */
-  @Parameter(defaultValue = "${project}", required = true, readonly = true)
-  private MavenProject project;
-
-  /**
-   * The entry point to Aether, i.e. the component doing all the work.
-   * 
-   */
-  @Component
-  private RepositorySystem repository;
-
-  /**
-   * The current repository/network configuration of Maven.
-   */
-  @Parameter(defaultValue = "${repositorySystemSession}", required = true, readonly = true)
-  private RepositorySystemSession session;
-
-  /**
-   * The project's remote repositories to use for the resolution.
-   */
-  @Parameter(defaultValue = "${project.remoteProjectRepositories}", required = true, readonly = true)
-  private List<RemoteRepository> repositories;
+    extends AbstractBoundsMojo {
 
   @Parameter(defaultValue = "false")
   private Boolean includeSnapshots = false;
@@ -80,8 +40,24 @@ public class StickyBoundsUpgradeMojo
   private Boolean failImmediately = false;
 
   /**
-   * The line separator used when rewriting the pom, this to defaults to your platform encoding but if you fix your encoding despite
-   * platform then you should use that.
+   * How many seconds all the resolution of the build may take, 0 for no limit. What was resolved in time is still written
+   * and the ranges that were skipped are reported, as a failure when failing immediately
+   */
+  @Parameter(defaultValue = "0")
+  private int timeBudget = 0;
+
+  /**
+   * The number of version ranges resolved concurrently, the results are still applied to the pom one at a time in declaration
+   * order
+   */
+  @Parameter(defaultValue = "8")
+  private int resolverThreads = 8;
+
+  /**
+   * No longer has any effect, only the versions that change are rewritten and the rest of the pom keeps the line separators
+   * it has.
+   *
+   * @deprecated the poms keep their line separators
    */
   @Parameter
   private LineSeparator lineSeparator = LineSeparator.defaultValue();
@@ -100,10 +76,70 @@ public class StickyBoundsUpgradeMojo
   @Parameter(defaultValue = "false")
   private boolean allowFixedContractBumps =false;
 
+  /**
+   * Skip the modules whose pom, configuration and the versions of the ranges it resolved are the same as when it was last
+   * upgraded. Checking still resolves every range, so the metadata is fetched as usual, what is saved is reading, upgrading
+   * and writing the poms that would not change.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean incremental = false;
+
+  /**
+   * Where the pom hash and version fingerprint of each module are kept between builds when upgrading incrementally
+   */
+  @Parameter(defaultValue = "${maven.multiModuleProjectDirectory}/.mvn/bounds-upgrade.state")
+  private File incrementalState;
+
+  private RangeResolver resolver;
+
+  private final Map<PomDocument, PomIndex> indexes = new IdentityHashMap<>();
+
+  private final List<String> changes = new ArrayList<>();
+
+  private final Set<String> resolved = new LinkedHashSet<>();
+
   @Override
   public void execute() throws MojoExecutionException {
-    Document pom = load();
+    IncrementalState state = incrementalState();
+    PomDocument pom;
+    boolean changed;
+    List<String> skipped;
+
+    try (RangeResolver resolver = newResolver(resolverThreads)) {
+      use(resolver);
+      if (isUnchanged(state)) {
+        getLog().info("Skipping " + project.getArtifactId() + " as neither its pom nor the versions it depends on changed");
+        reportResolution(resolver);
+        return;
+      }
+
+      pom = load();
+      prefetch(index(pom));
+
+      changed = upgrade(pom);
+      remember(state, pom);
 
+      reportResolution(resolver);
+      skipped = resolver.getSkipped();
+    }
+
+    if (changed) {
+      writeChanges(pom);
+    }
+
+    if (state != null)
+      state.save();
+
+    reportSkipped(skipped);
+  }
+
+  /**
+   * Apply the resolved ranges to the pom of the current project, bumping its major version if a dependency had a contract
+   * change
+   */
+  boolean upgrade(PomDocument pom) throws MojoExecutionException {
+    resolved.clear();
+    change = new Changes();
     change.acceptMinorVersionChanges(acceptMinorVersionChanges);
 
     processProperties(pom);
@@ -112,57 +148,237 @@ public class StickyBoundsUpgradeMojo
 
     processDependencyManagement(pom);
 
-    if (change.changed()) {
-      if (change.upgraded())
-        bumpMajorVersion(pom);
-      writeChanges(pom);
+    if (change.changed() && change.upgraded())
+      bumpMajorVersion(pom);
+
+    return change.changed();
+  }
+
+  void use(RangeResolver resolver) {
+    this.resolver = resolver;
+  }
+
+  int getResolverThreads() {
+    return resolverThreads;
+  }
+
+  boolean isIncludeSnapshots() {
+    return includeSnapshots;
+  }
+
+  @Override
+  protected int getTimeBudget() {
+    return timeBudget;
+  }
+
+  void reportSkipped(List<String> skipped) throws MojoExecutionException {
+    reportSkipped(skipped, failImmediately);
+  }
+
+  /**
+   * The state of the last build when upgrading incrementally, otherwise null
+   */
+  IncrementalState incrementalState() {
+    return incremental ? IncrementalState.of(session, incrementalState.toPath()) : null;
+  }
+
+  boolean isIncremental() {
+    return incremental;
+  }
+
+  /**
+   * The first module to ask checks the whole reactor, the ranges of every module whose pom has not changed are resolved
+   * together and the rest of the modules just look up the answer
+   */
+  boolean isUnchanged(IncrementalState state) {
+    if (state == null)
+      return false;
+
+    synchronized (state) {
+      if (!state.isChecked())
+        state.checked(check(state));
+    }
+    return state.isUnchanged(key(project));
+  }
+
+  private Set<String> check(IncrementalState state) {
+    Map<MavenProject, IncrementalState.Entry> candidates = new LinkedHashMap<>();
+    for (MavenProject module : reactor()) {
+      IncrementalState.Entry entry = state.get(key(module));
+      if (entry != null && module.getFile() != null
+        && entry.getPom().equals(IncrementalState.hash(module.getFile().toPath())))
+        candidates.put(module, entry);
     }
+
+    for (Map.Entry<MavenProject, IncrementalState.Entry> candidate : candidates.entrySet())
+      for (String coordinate : candidate.getValue().getCoordinates()) {
+        Artifact artifact = new DefaultArtifact(coordinate);
+        if (reactorVersions().version(artifact) == null)
+          resolver.prefetch(new VersionRangeRequest(artifact, candidate.getKey().getRemoteProjectRepositories(), null));
+      }
+
+    Set<String> unchanged = new HashSet<>();
+    for (Map.Entry<MavenProject, IncrementalState.Entry> candidate : candidates.entrySet()) {
+      String fingerprint = fingerprint(candidate.getValue().getCoordinates(),
+        candidate.getKey().getRemoteProjectRepositories());
+      if (candidate.getValue().getFingerprint().equals(fingerprint))
+        unchanged.add(key(candidate.getKey()));
+    }
+
+    getLog().info(String.format("%d of %d modules are unchanged since they were last upgraded", unchanged.size(),
+      reactor().size()));
+    return unchanged;
+  }
+
+  /**
+   * Keep the pom as it will be written along with the ranges it resolved and what they resolved to, a module that could
+   * not be fingerprinted is forgotten so it is upgraded again next time
+   */
+  void remember(IncrementalState state, PomDocument pom) {
+    if (state == null)
+      return;
+
+    String fingerprint = fingerprint(resolved, repositories);
+    if (fingerprint == null)
+      state.forget(key(project));
+    else
+      state.put(key(project), new IncrementalState.Entry(IncrementalState.hash(pom.toBytes()), fingerprint,
+        new ArrayList<>(resolved)));
   }
 
-  void bumpMajorVersion(Document pom) throws MojoExecutionException {
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-    Nodes project = pom.query("/mvn:project", context);
-    if (project.size() == 0)
+  /**
+   * The hash of the configuration and the versions each range resolved to, a range answered by the reactor counts with the
+   * version it was answered with. Null if a range has no versions.
+   */
+  private String fingerprint(Collection<String> coordinates, List<RemoteRepository> repositories) {
+    StringBuilder versions = new StringBuilder(configuration()).append('\n');
+    for (String coordinate : coordinates) {
+      Artifact artifact = new DefaultArtifact(coordinate);
+      versions.append(coordinate).append('=');
+      String reactorVersion = reactorVersions().version(artifact);
+      if (reactorVersion != null)
+        versions.append("reactor ").append(reactorVersion);
+      else {
+        List<Version> found;
+        try {
+          found = resolver.index(new VersionRangeRequest(artifact, repositories, null)).versions(includeSnapshots);
+        }
+        catch (TimeBudgetExpiredException e) {
+          return null;
+        }
+
+        if (found.isEmpty())
+          return null;
+        versions.append(found);
+      }
+      versions.append('\n');
+    }
+    return IncrementalState.hash(versions.toString());
+  }
+
+  /**
+   * The configuration that changes what an upgrade does to a pom
+   */
+  String configuration() {
+    return String.format("acceptMinorVersionChanges=%s allowFixedContractBumps=%s includeSnapshots=%s updateProperties=%s",
+      acceptMinorVersionChanges, allowFixedContractBumps, includeSnapshots, updateProperties);
+  }
+
+  private static String key(MavenProject module) {
+    return module.getGroupId() + ":" + module.getArtifactId();
+  }
+
+  private static String coordinate(Artifact artifact) {
+    return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getExtension()
+      + (artifact.getClassifier().isEmpty() ? "" : ":" + artifact.getClassifier())
+      + ":" + artifact.getVersion().replace(" ", "");
+  }
+
+  /**
+   * The versions changed since last asked, for the summary of the goals that work on the whole reactor
+   */
+  List<String> takeChanges() {
+    List<String> taken = new ArrayList<>(changes);
+    changes.clear();
+    return taken;
+  }
+
+  void bumpMajorVersion(PomDocument pom) throws MojoExecutionException {
+    PomIndex pomIndex = index(pom);
+    if (!pomIndex.isProject())
       throw new MojoExecutionException("Pom is broken");
 
-    Nodes nodes = pom.query("/mvn:project/mvn:version", context);
-    if (nodes.size() != 1)
+    PomDocument.TextNode version = pomIndex.projectVersion();
+    if (version == null)
       throw new MojoExecutionException("Version is not declared correctly");
 
-    Element e = (Element) nodes.get(0);
-    String[] components = e.getValue().split("\\.");
+    String bumpedVersion = bumpedVersion(version.getValue());
+
+    changes.add("version " + version.getValue() + " -> " + bumpedVersion);
+    version.setValue(bumpedVersion);
+    // TODO check that the next version does not already exist
+  }
+
+  /**
+   * Raise the first component of the version, 3.7-SNAPSHOT goes to 4.7-SNAPSHOT
+   */
+  String bumpedVersion(String version) {
+    String[] components = version.split("\\.");
     components[0] = Integer.toString(Integer.valueOf(components[0]) + 1);
+    return String.join(".", components);
+  }
 
-    String bumpedVersion = String.join(".", components);
+  /**
+   * Start resolving every range we are going to look at so the network calls overlap, the process methods then pick up the
+   * results in order
+   */
+  void prefetch(PomIndex index) {
+    for (String propertyName : declaredVersionProperties(index)) {
+      Dependency dependency = dependencyUsingVersionProperty(propertyName);
+      if (dependency != null)
+        prefetch(dependency, project.getProperties().getProperty(propertyName));
+    }
 
-    Element newVersion = new Element("version", "http://maven.apache.org/POM/4.0.0");
-    newVersion.appendChild(bumpedVersion);
-    ((Element) project.get(0)).replaceChild(e, newVersion);
-    // TODO check that the next version does not already exist
+    for (Dependency dependency : declaredDependencies(index))
+      prefetch(dependency, dependency.getVersion());
+
+    for (Dependency dependency : declaredManagedDependencies(index))
+      prefetch(dependency, dependency.getVersion());
+  }
+
+  private void prefetch(Dependency dependency, String version) {
+    if (version == null)
+      return;
+
+    RangeVersionMatch versionMatch = versionMatch(version);
+    if (!versionMatch.matches())
+      return;
+
+    Artifact artifact = searchArtifact(dependency, versionMatch);
+    if (!reactorVersions().isPending(artifact) && reactorVersion(artifact) == null)
+      resolver.prefetch(rangeRequest(artifact));
   }
 
-  private void processDependencyManagement(Document pom)
+  private void processDependencyManagement(PomDocument pom)
       throws MojoExecutionException {
-    if (project.getDependencyManagement() != null) {
-      for (Dependency dependency : project.getDependencyManagement().getDependencies()) {
-        try {
-          String version = dependency.getVersion();
-          Artifact artifact = resolveLatestVersionRange(dependency, dependency.getVersion());
+    for (Dependency dependency : declaredManagedDependencies(index(pom))) {
+      try {
+        String version = dependency.getVersion();
+        Artifact artifact = resolveLatestVersionRange(dependency, dependency.getVersion());
 
-          if (change.change(artifact.getVersion(), version)) {
-            updateDependencyManagement(pom, artifact, artifact.getVersion());
-          }
-        }
-        catch (MojoExecutionException e) {
-          fail(e);
+        if (change.change(artifact.getVersion(), version)) {
+          updateDependencyManagement(pom, artifact, artifact.getVersion());
         }
       }
+      catch (MojoExecutionException e) {
+        fail(e);
+      }
     }
   }
 
-  private void processDependencies(Document pom)
+  private void processDependencies(PomDocument pom)
       throws MojoExecutionException {
-    for (Dependency dependency : project.getDependencies()) {
+    for (Dependency dependency : declaredDependencies(index(pom))) {
       try {
         String version = dependency.getVersion();
         Artifact artifact = resolveLatestVersionRange(dependency, dependency.getVersion());
@@ -177,27 +393,26 @@ public class StickyBoundsUpgradeMojo
     }
   }
 
-  private void processProperties(Document pom)
+  private void processProperties(PomDocument pom)
       throws MojoExecutionException {
-    for (String propertyName : project.getProperties().stringPropertyNames()) {
-      if (propertyName.endsWith(".version")) {
-        try {
-          final String version = project.getProperties().getProperty(propertyName);
-          Dependency dependency = findDependencyUsingVersionProperty(propertyName);
-          if (dependency != null) {
-            Artifact artifact = resolveLatestVersionRange(dependency, version);
-            if (change.change(artifact.getVersion(), version)) {
-              updateProperty(pom, propertyName, artifact.getVersion());
-            }
-          }
-          else {
-            getLog().warn("No dependency found using " + propertyName);
+    for (String propertyName : declaredVersionProperties(index(pom))) {
+      try {
+        final String version = project.getProperties().getProperty(propertyName);
+        Dependency dependency = dependencyUsingVersionProperty(propertyName);
+        if (dependency != null) {
+          warnAboutVersionProperty(dependency);
+          Artifact artifact = resolveLatestVersionRange(dependency, version);
+          if (change.change(artifact.getVersion(), version)) {
+            updateProperty(pom, propertyName, artifact.getVersion());
           }
         }
-        catch (MojoExecutionException e) {
-          fail(e);
+        else {
+          getLog().warn("No dependency found using " + propertyName);
         }
       }
+      catch (MojoExecutionException e) {
+        fail(e);
+      }
     }
   }
 
@@ -211,17 +426,16 @@ public class StickyBoundsUpgradeMojo
   }
 
   Artifact resolveLatestVersionRange(Dependency dependency, String version) throws MojoExecutionException {
-    RangeVersionMatch versionMatch = new RangeVersionMatch(version);
-    
-    if (allowFixedContractBumps)
-      versionMatch.allowFixedContractBump();
-    
+    RangeVersionMatch versionMatch = versionMatch(version);
+
     getLog().debug("Checking dependency " + dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + version);
     if (versionMatch.matches()) {
-      Artifact artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(),
-        dependency.getClassifier(), dependency.getType(), versionMatch.getSearchRange());
+      Artifact artifact = searchArtifact(dependency, versionMatch);
 
       Version highestVersion = highestVersion(artifact);
+      if (highestVersion == null)
+        return artifact.setVersion(version);
+
       return artifact.setVersion(versionMatch.newVersionRange(highestVersion));
     }
     else {
@@ -230,134 +444,94 @@ public class StickyBoundsUpgradeMojo
     }
   }
 
-  private Dependency findDependencyUsingVersionProperty(String propertyName) {
-    for (Dependency dependency : project.getDependencies()) {
-      if (propertyName.equals(dependency.getArtifactId() + ".version")) {
-        getLog()
-          .warn(
-            "If you use dependency composition then you will find that version properties "
-              + "are really not that useful. Its an extra indirection that often you don't need. "
-              + "IMO people take the magic number refactoring too far");
-        return dependency;
-      }
-    }
-    if (project.getDependencyManagement() != null) {
-      for (Dependency dependency : project.getDependencyManagement().getDependencies()) {
-        if (propertyName.equals(dependency.getArtifactId() + ".version")) {
-          getLog()
-            .warn(
-              "Dependency Management is an anti pattern, think OO or functional, "
-                + "dependencies should be composed NOT inherited");
-          return dependency;
-        }
-      }
-    }
-    return null;
+  private RangeVersionMatch versionMatch(String version) {
+    RangeVersionMatch versionMatch = new RangeVersionMatch(version);
+
+    if (allowFixedContractBumps)
+      versionMatch.allowFixedContractBump();
+
+    return versionMatch;
   }
 
-  private void writeChanges(Document pom) {
-    Serializer serializer = createSerialiser();
+  private Artifact searchArtifact(Dependency dependency, RangeVersionMatch versionMatch) {
+    return new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(),
+      dependency.getClassifier(), dependency.getType(), versionMatch.getSearchRange());
+  }
+
+  void writeChanges(PomDocument pom) {
+    noteLineSeparator(lineSeparator);
+
     try {
-      serializer.write(pom);
+      pom.write(project.getFile());
     }
     catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  private Serializer createSerialiser() {
-    try {
-      Serializer serializer = new StickySerializer(new FileOutputStream(project.getFile()), "UTF-8");
-      if (!System.lineSeparator().equals(lineSeparator.value()))
-        getLog().info(String.format("The line separator is configured to %s, not using system line separator", lineSeparator));
-
-      serializer.setLineSeparator(lineSeparator.value());
-      return serializer;
-    }
-    catch (UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
-    catch (FileNotFoundException e) {
-      throw new RuntimeException(e);
-    }
+  private VersionRangeRequest rangeRequest(Artifact artifact) {
+    return new VersionRangeRequest(artifact, repositories, null);
   }
 
   protected Version highestVersion(Artifact artifact) throws MojoExecutionException {
-    VersionRangeRequest request = new VersionRangeRequest(artifact, repositories, null);
-    VersionRangeResult v = resolve(request);
-
-    if (!includeSnapshots) {
-      List<Version> filtered = new ArrayList<Version>();
-      for (Version aVersion : v.getVersions()) {
-        if (!aVersion.toString().endsWith("SNAPSHOT")) {
-          filtered.add(aVersion);
-        }
-      }
-      v.setVersions(filtered);
+    resolved.add(coordinate(artifact));
+    Version reactorVersion = reactorVersion(artifact);
+    if (reactorVersion != null)
+      return reactorVersion;
+
+    VersionIndex versions;
+    try {
+      versions = resolver.index(rangeRequest(artifact));
     }
+    catch (TimeBudgetExpiredException e) {
+      getLog().debug(e.getMessage());
+      return null;
+    }
+
+    Version highest = versions.highest(includeSnapshots);
 
-    if (v.getHighestVersion() == null) {
-      throw (v.getExceptions().isEmpty())
+    if (highest == null) {
+      throw (versions.getExceptions().isEmpty())
         ? new MojoExecutionException("Failed to resolve " + artifact.toString())
-        : new MojoExecutionException("Failed to resolve " + artifact.toString(), v.getExceptions().get(0));
+        : new MojoExecutionException("Failed to resolve " + artifact.toString(), versions.getExceptions().get(0));
     }
 
-    getLog().debug("found highest version " + v.getHighestVersion() + " in range " + artifact.getVersion());
-    return v.getHighestVersion();
+    getLog().debug("found highest version " + highest + " in range " + artifact.getVersion());
+    return highest;
   }
 
-  void updateProperty(Document pom, String propertyName, String newVersion) throws MojoExecutionException {
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-    Nodes nodes = pom.query("//mvn:properties", context);
-
-    if (nodes.size() > 0) {
-      final Element propertiesElement = (Element) nodes.get(0);
-      Elements properties = propertiesElement.getChildElements();
-      for (int i = 0; i < properties.size(); i++) {
-        Element property = properties.get(i);
-        if (property.getLocalName().equals(propertyName)) {
-          Element newRange = new Element(propertyName, "http://maven.apache.org/POM/4.0.0");
-          newRange.appendChild(newVersion);
-          propertiesElement.replaceChild(property, newRange);
-        }
-      }
+  void updateProperty(PomDocument pom, String propertyName, String newVersion) throws MojoExecutionException {
+    PomDocument.TextNode property = index(pom).property(propertyName);
+    if (property != null) {
+      changes.add(propertyName + " " + property.getValue() + " -> " + newVersion);
+      property.setValue(newVersion);
     }
   }
 
-  void updateDependency(Document pom, Artifact artifact, String oldVersion) throws MojoExecutionException {
-    updateDependency(pom, dependencyPath(artifact.getArtifactId()), oldVersion, artifact);
+  void updateDependency(PomDocument pom, Artifact artifact, String oldVersion) throws MojoExecutionException {
+    updateDependency(index(pom).dependencies(artifact), oldVersion, artifact);
   }
 
-  void updateDependencyManagement(Document pom, Artifact artifact, String oldVersion) throws MojoExecutionException {
-    updateDependency(pom, dependencyManagementPath(artifact.getArtifactId()), oldVersion, artifact);
+  void updateDependencyManagement(PomDocument pom, Artifact artifact, String oldVersion) throws MojoExecutionException {
+    updateDependency(index(pom).managedDependencies(artifact), oldVersion, artifact);
   }
 
-  private void updateDependency(Document pom, String dependencyPath, String oldVersion, Artifact artifact)
+  private void updateDependency(List<PomIndex.DependencyElement> dependencies, String oldVersion, Artifact artifact)
       throws MojoExecutionException {
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-    Nodes nodes = pom.query(dependencyPath, context);
-
-    if (nodes.size() == 0) {
+    if (dependencies.isEmpty()) {
       throw new MojoExecutionException(String.format("Missing <dependency> element for dependency %s, skipping.",
         artifact.getArtifactId()));
     }
 
-    for (int i = 0; i < nodes.size(); i++) {
-      Node node = nodes.get(i);
-      ParentNode dependency = node.getParent();
-      Nodes classifier = dependency.query("mvn:classifier", context);
-      if (classifier.size() != 0)
-        if (!classifier.get(0).getValue().equals(artifact.getClassifier()))
-          return;
+    for (PomIndex.DependencyElement dependency : dependencies) {
+      if (!dependency.matches(artifact))
+        continue;
 
-      final Nodes versionNodes = dependency.query("mvn:version", context);
-      if (versionNodes.size() > 0) {
+      if (dependency.hasVersion()) {
         getLog().info("Upgrading dependency " + artifact.getGroupId() + ":" + artifact.getArtifactId() + " from " + oldVersion + " to " + artifact.getVersion());
-        Element version = (Element) versionNodes.get(0);
-        if (!version.getValue().startsWith("${") || updateProperties) {
-          Element newRange = new Element("version", "http://maven.apache.org/POM/4.0.0");
-          newRange.appendChild(artifact.getVersion());
-          dependency.replaceChild(version, newRange);
+        if (!dependency.getVersion().startsWith("${") || updateProperties) {
+          changes.add(artifact.getArtifactId() + " " + dependency.getVersion() + " -> " + artifact.getVersion());
+          dependency.setVersion(artifact.getVersion());
         }
       }
       else {
@@ -367,36 +541,20 @@ public class StickyBoundsUpgradeMojo
     }
   }
 
-  private String dependencyPath(String artifactId) {
-    return "//mvn:dependencies/mvn:dependency/mvn:artifactId[text()='" + artifactId + "']";
-  }
-
-  private String dependencyManagementPath(String artifactId) {
-    return "//mvn:dependencyManagement/mvn:dependencies/mvn:dependency/mvn:artifactId[text()='" + artifactId + "']";
+  /**
+   * The index is built once per document, the tests hand us documents directly and the reactor goals hold one per module
+   */
+  PomIndex index(PomDocument pom) {
+    return indexes.computeIfAbsent(pom, p -> PomIndex.build(p, project));
   }
 
-  private Document load() {
+  PomDocument load() {
     try {
-      return new Builder().build(project.getFile());
-    }
-    catch (ValidityException e) {
-      throw new RuntimeException(e);
-    }
-    catch (ParsingException e) {
-      throw new RuntimeException(e);
+      return PomDocument.load(project.getFile());
     }
     catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  private VersionRangeResult resolve(VersionRangeRequest request) {
-    try {
-      return repository.resolveVersionRange(session, request);
-    }
-    catch (VersionRangeResolutionException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
 }
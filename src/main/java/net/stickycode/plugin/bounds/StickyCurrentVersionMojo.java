@@ -3,34 +3,25 @@ package net.stickycode.plugin.bounds;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.apache.maven.project.MavenProject;
-import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.VersionRangeRequest;
-import org.eclipse.aether.resolution.VersionRangeResolutionException;
-import org.eclipse.aether.resolution.VersionRangeResult;
 import org.eclipse.aether.version.Version;
 
 @Mojo(name = "current-version", threadSafe = true, defaultPhase = LifecyclePhase.VALIDATE)
 public class StickyCurrentVersionMojo
-    extends AbstractMojo {
-
-  /**
-   * The current repository/network configuration of Maven.
-   */
-  @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
-  private RepositorySystemSession session;
+    extends AbstractBoundsMojo {
 
   @Parameter(required = false)
   private Map<String, String> coordinates;
@@ -44,14 +35,21 @@ public class StickyCurrentVersionMojo
   @Parameter(defaultValue = "false")
   private Boolean includeSnapshots = false;
 
-  @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
-  private List<RemoteRepository> repositories;
+  /**
+   * The number of artifacts looked up at once, on a pool of the goals own rather than one shared with the rest of the build
+   */
+  @Parameter(defaultValue = "8")
+  private int lookupThreads = 8;
 
-  @Parameter(readonly = true, defaultValue = "${project}")
-  private MavenProject project;
+  /**
+   * Resolve the artifacts once for the whole reactor, later executions with the same artifacts and repositories set the
+   * properties on their own module from the first rather than resolving again. Useful when the execution is inherited by
+   * every module from a parent.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean shareWithReactor = false;
 
-  @Component
-  private RepositorySystem repository;
+  private RangeResolver resolver;
 
   @Override
   public void execute()
@@ -69,17 +67,103 @@ public class StickyCurrentVersionMojo
         lookup.add(new ArtifactLookup().withGav(coordinates.get(property)).withPropertyName(property));
       }
 
-    lookupVersions(lookup);
+    if (shareWithReactor) {
+      lookupShared(lookup);
+      return;
+    }
+
+    try (RangeResolver resolver = newResolver(lookupThreads)) {
+      this.resolver = resolver;
+      lookupVersions(lookup);
+      reportResolution(resolver);
+    }
+  }
+
+  /**
+   * The first execution to get here resolves the artifacts, the rest with the same key wait for it and copy the properties onto
+   * their own project. Only executions with the same key wait on each other and no other module is changed, so a parallel
+   * build is not held up or raced.
+   */
+  void lookupShared(List<ArtifactLookup> lookup) throws MojoExecutionException {
+    AtomicReference<Properties> shared = shared(session).computeIfAbsent(key(lookup), k -> new AtomicReference<>());
+    synchronized (shared) {
+      if (shared.get() != null) {
+        getLog().debug("using the versions resolved for the reactor");
+        project.getProperties().putAll(shared.get());
+        return;
+      }
+
+      try (RangeResolver resolver = newResolver(lookupThreads)) {
+        this.resolver = resolver;
+        lookupVersions(lookup);
+        reportResolution(resolver);
+      }
+
+      Properties properties = new Properties();
+      for (ArtifactLookup each : lookup) {
+        properties.setProperty(each.getPropertyName(), project.getProperties().getProperty(each.getPropertyName()));
+        properties.setProperty(each.getVersionRangePropertyName(),
+          project.getProperties().getProperty(each.getVersionRangePropertyName()));
+      }
+      shared.set(properties);
+    }
+  }
+
+  /**
+   * Executions configured with the same artifacts, the same reactor settings and against the same repositories share their
+   * results
+   */
+  String key(List<ArtifactLookup> lookup) {
+    StringBuilder key = new StringBuilder(includeSnapshots ? "snapshots" : "releases");
+    if (isUseReactorVersions())
+      key.append(isReactorSnapshots() ? " reactor+snapshots" : " reactor");
+    for (ArtifactLookup each : lookup)
+      key.append(' ').append(each.getGav()).append('=').append(each.getPropertyName());
+    if (repositories != null)
+      for (RemoteRepository repository : repositories)
+        key.append(' ').append(repository.getId()).append('@').append(repository.getUrl());
+    return key.toString();
+  }
+
+  private static Map<String, AtomicReference<Properties>> shared(RepositorySystemSession session) {
+    return SessionSingletons.of(session, StickyCurrentVersionMojo.class.getName() + ".shared", ConcurrentHashMap.class,
+      ConcurrentHashMap<String, AtomicReference<Properties>>::new);
   }
 
-  void lookupVersions(List<ArtifactLookup> lookup) {
-    lookup
-      .parallelStream()
-      .map(this::parseCoordinates)
-      .forEach(this::lookupArtifactVersion);
+  /**
+   * Every lookup is attempted even when some fail, the failures are then reported together
+   */
+  void lookupVersions(List<ArtifactLookup> lookup) throws MojoExecutionException {
+    List<String> failures = new ArrayList<>();
+    List<ArtifactLookup> parsed = new ArrayList<>();
+    for (ArtifactLookup each : lookup) {
+      try {
+        parsed.add(parseCoordinates(each));
+      }
+      catch (RuntimeException e) {
+        failures.add(e.getMessage());
+      }
+    }
+
+    for (ArtifactLookup each : parsed)
+      if (reactorVersion(each.getArtifact()) == null)
+        resolver.prefetch(request(each.getArtifact()));
+
+    for (ArtifactLookup each : parsed) {
+      try {
+        lookupArtifactVersion(each);
+      }
+      catch (RuntimeException e) {
+        failures.add(e.getCause() != null ? e.getMessage() + ": " + e.getCause().getMessage() : e.getMessage());
+      }
+    }
+
+    if (!failures.isEmpty())
+      throw new MojoExecutionException(String.format("Failed to find the current version of %d of %d artifacts%n  %s",
+        failures.size(), lookup.size(), String.join(String.format("%n  "), failures)));
   }
 
-  ArtifactLookup parseCoordinates(ArtifactLookup lookup) {
+  static ArtifactLookup parseCoordinates(ArtifactLookup lookup) {
     String[] c = lookup.getGav().split(":");
     if (c.length < 3)
       throw new RuntimeException("Invalid gav:" + lookup.getGav());
@@ -98,36 +182,26 @@ public class StickyCurrentVersionMojo
     log("resolved %s to %s", lookup.getArtifact(), version.toString());
   }
 
+  private VersionRangeRequest request(Artifact artifact) {
+    return new VersionRangeRequest(artifact, repositories, null);
+  }
+
   private Version highestVersion(Artifact artifact) {
-    VersionRangeRequest request = new VersionRangeRequest(artifact, repositories, null);
-    VersionRangeResult v = resolve(request);
-
-    if (!includeSnapshots) {
-      List<Version> filtered = new ArrayList<Version>();
-      for (Version aVersion : v.getVersions()) {
-        if (!aVersion.toString().endsWith("SNAPSHOT")) {
-          filtered.add(aVersion);
-        }
-      }
-      v.setVersions(filtered);
-    }
+    Version reactorVersion = reactorVersion(artifact);
+    if (reactorVersion != null)
+      return reactorVersion;
 
-    if (v.getHighestVersion() == null) {
-      throw (v.getExceptions().isEmpty())
-        ? new RuntimeException("Failed to resolve " + artifact.toString())
-        : new RuntimeException("Failed to resolve " + artifact.toString(), v.getExceptions().get(0));
-    }
+    VersionIndex versions = resolver.index(request(artifact));
 
-    return v.getHighestVersion();
-  }
+    Version highest = versions.highest(includeSnapshots);
 
-  private VersionRangeResult resolve(VersionRangeRequest request) {
-    try {
-      return repository.resolveVersionRange(session, request);
-    }
-    catch (VersionRangeResolutionException e) {
-      throw new RuntimeException(e);
+    if (highest == null) {
+      throw (versions.getExceptions().isEmpty())
+        ? new RuntimeException("Failed to resolve " + artifact.toString())
+        : new RuntimeException("Failed to resolve " + artifact.toString(), versions.getExceptions().get(0));
     }
+
+    return highest;
   }
 
   private void log(String message, Object... parameters) {
@@ -0,0 +1,129 @@
+package net.stickycode.plugin.bounds;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.version.Version;
+
+/**
+ * Write the highest version of every range of the reactor to a lock file. With the plugin configured as a core extension
+ * in .mvn/extensions.xml builds then take the versions from the lock rather than downloading metadata to resolve the ranges.
+ * Only the ranges declared in the poms of the reactor are written, the ranges of transitive dependencies are not locked.
+ */
+@Mojo(threadSafe = true, name = "lock", aggregator = true, requiresDirectInvocation = true)
+public class StickyLockMojo
+    extends AbstractBoundsMojo {
+
+  /**
+   * Where to write the lock, the extension looks for it in the same place unless -Dbounds.lockFile says otherwise
+   */
+  @Parameter(defaultValue = "${maven.multiModuleProjectDirectory}/.mvn/bounds.lock")
+  private File lockFile;
+
+  @Parameter(defaultValue = "false")
+  private Boolean includeSnapshots = false;
+
+  /**
+   * The number of version ranges resolved concurrently
+   */
+  @Parameter(defaultValue = "8")
+  private int resolverThreads = 8;
+
+  private RangeResolver resolver;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    List<MavenProject> reactor = reactor();
+    LockFile lock = new LockFile();
+    List<String> failures = new ArrayList<>();
+
+    try (RangeResolver resolver = newResolver(resolverThreads)) {
+      this.resolver = resolver;
+      Map<String, VersionRangeRequest> requests = ranges(reactor);
+      for (VersionRangeRequest request : requests.values())
+        resolver.prefetch(request);
+
+      for (VersionRangeRequest request : requests.values()) {
+        try {
+          lock.put(request.getArtifact(), highestVersion(request).toString());
+        }
+        catch (RuntimeException e) {
+          failures.add(e.getMessage());
+        }
+      }
+
+      reportResolution(resolver);
+    }
+
+    if (!failures.isEmpty())
+      throw new MojoExecutionException(String.format("Failed to lock %d ranges%n  %s",
+        failures.size(), String.join(String.format("%n  "), failures)));
+
+    try {
+      lock.write(lockFile.toPath());
+    }
+    catch (IOException e) {
+      throw new MojoExecutionException("Failed to write " + lockFile, e);
+    }
+
+    getLog().info(String.format("Locked %d ranges of %d modules in %s", lock.size(), reactor.size(), lockFile));
+  }
+
+  /**
+   * Every distinct range of the modules, ranges on the modules themselves are left to the reactor
+   */
+  Map<String, VersionRangeRequest> ranges(List<MavenProject> reactor) {
+    Set<String> modules = new HashSet<>();
+    for (MavenProject module : reactor)
+      modules.add(module.getGroupId() + ":" + module.getArtifactId());
+
+    Map<String, VersionRangeRequest> requests = new LinkedHashMap<>();
+    for (MavenProject module : reactor) {
+      select(module);
+      List<Dependency> dependencies = new ArrayList<>(project.getDependencies());
+      if (project.getDependencyManagement() != null)
+        dependencies.addAll(project.getDependencyManagement().getDependencies());
+
+      for (Dependency dependency : dependencies) {
+        if (dependency.getVersion() == null || !VersionRange.parse(dependency.getVersion()).isRange())
+          continue;
+
+        if (modules.contains(dependency.getGroupId() + ":" + dependency.getArtifactId()))
+          continue;
+
+        Artifact artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(),
+          dependency.getClassifier(), dependency.getType(), dependency.getVersion().trim());
+        VersionRangeRequest request = new VersionRangeRequest(artifact, repositories, null);
+        requests.putIfAbsent(ResolutionCache.key(request), request);
+      }
+    }
+    return requests;
+  }
+
+  private Version highestVersion(VersionRangeRequest request) {
+    VersionIndex versions = resolver.index(request);
+    Version highest = versions.highest(includeSnapshots);
+    if (highest == null) {
+      throw (versions.getExceptions().isEmpty())
+        ? new RuntimeException("Failed to resolve " + request.getArtifact())
+        : new RuntimeException("Failed to resolve " + request.getArtifact(), versions.getExceptions().get(0));
+    }
+
+    return highest;
+  }
+
+}
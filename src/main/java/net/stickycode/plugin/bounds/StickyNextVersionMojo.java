@@ -6,29 +6,33 @@ import java.time.Clock;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.apache.maven.execution.MavenSession;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
-import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.VersionRangeRequest;
-import org.eclipse.aether.resolution.VersionRangeResolutionException;
 import org.eclipse.aether.resolution.VersionRangeResult;
 import org.eclipse.aether.transfer.MetadataNotFoundException;
 import org.eclipse.aether.version.Version;
 
 @Mojo(name = "next-version", threadSafe = true, defaultPhase = LifecyclePhase.VALIDATE)
 public class StickyNextVersionMojo
-    extends AbstractMojo {
+    extends AbstractBoundsMojo {
+
+  /**
+   * How many of the highest versions are looked at before scanning them all, long lived projects have thousands. This only
+   * bounds the work in memory, the resolver still reads every version as they all come in the one metadata file.
+   */
+  static final int SLICE = 64;
 
   /**
    * Choose the rule to use in incrementing the version:
@@ -64,37 +68,87 @@ public class StickyNextVersionMojo
   private Boolean includeSnapshots = false;
 
   /**
-   * The current repository/network configuration of Maven.
+   * Work out the next version once for the whole reactor from the versions released of all its modules and give it to every
+   * module that runs the goal, so modules sharing a version cannot end up with different ones when one of them was never
+   * released
    */
-  @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
-  private RepositorySystemSession repositorySession;
-
-  @Parameter(defaultValue = "${session}")
-  protected MavenSession mavenSession;
-
-  @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
-  private List<RemoteRepository> repositories;
+  @Parameter(defaultValue = "false")
+  private boolean sharedVersion = false;
 
-  @Parameter(readonly = true, defaultValue = "${project}")
-  private MavenProject project;
+  /**
+   * The number of modules looked up at once when working out the shared version, on a pool of the goals own
+   */
+  @Parameter(defaultValue = "8")
+  private int lookupThreads = 8;
 
-  @Component
-  private RepositorySystem repository;
+  private RangeResolver resolver;
 
   @Override
   public void execute()
       throws MojoExecutionException, MojoFailureException {
-    String nextVersion = nextVersion(project.getVersion());
+    if (sharedVersion) {
+      executeShared();
+      return;
+    }
+
+    String nextVersion;
+    try (RangeResolver resolver = newResolver(1)) {
+      this.resolver = resolver;
+      nextVersion = nextVersion(project.getVersion());
+      reportResolution(resolver);
+    }
+
+    apply(project, nextVersion);
+  }
+
+  /**
+   * The first module to get here works out the version, the rest with the same key wait for it. Each module only sets the
+   * version on itself so a parallel build never changes a module another thread is building.
+   */
+  private void executeShared() {
+    AtomicReference<String> shared = shared(session).computeIfAbsent(key(), k -> new AtomicReference<>());
+    synchronized (shared) {
+      if (shared.get() != null)
+        debug("using the next version %s of the reactor", shared.get());
+      else
+        try (RangeResolver resolver = newResolver(lookupThreads)) {
+          this.resolver = resolver;
+          shared.set(reactorNextVersion(project.getVersion()));
+          reportResolution(resolver);
+        }
+    }
+
+    apply(project, shared.get());
+  }
+
+  /**
+   * Executions with the same rule, project version and repositories work out the same next version
+   */
+  String key() {
+    StringBuilder key = new StringBuilder(getVersionIncrement().name())
+      .append(' ').append(includeSnapshots ? "snapshots" : "releases")
+      .append(' ').append(project.getVersion());
+    if (repositories != null)
+      for (RemoteRepository repository : repositories)
+        key.append(' ').append(repository.getId()).append('@').append(repository.getUrl());
+    return key.toString();
+  }
+
+  private static Map<String, AtomicReference<String>> shared(RepositorySystemSession session) {
+    return SessionSingletons.of(session, StickyNextVersionMojo.class.getName() + ".shared", ConcurrentHashMap.class,
+      ConcurrentHashMap<String, AtomicReference<String>>::new);
+  }
 
+  private void apply(MavenProject module, String nextVersion) {
     if (nextVersionProperty != null) {
-      project.getProperties().setProperty(nextVersionProperty, nextVersion);
-      log("set property %s to %s", nextVersionProperty, nextVersion);
+      module.getProperties().setProperty(nextVersionProperty, nextVersion);
+      log("set property %s of %s to %s", nextVersionProperty, module.getArtifactId(), nextVersion);
     }
 
     if (updateProjectVersion) {
-      project.setVersion(nextVersion);
-      project.getBuild().setFinalName(project.getArtifactId() + "-" + nextVersion);
-      log("set project version to %s", nextVersion);
+      module.setVersion(nextVersion);
+      module.getBuild().setFinalName(module.getArtifactId() + "-" + nextVersion);
+      log("set project version of %s to %s", module.getArtifactId(), nextVersion);
     }
   }
 
@@ -111,32 +165,54 @@ public class StickyNextVersionMojo
     return increment(version);
   }
 
+  /**
+   * The next version from the released versions of every module of the reactor together, the modules are looked up at once
+   */
+  String reactorNextVersion(String projectVersion) {
+    if (!projectVersion.endsWith("-SNAPSHOT")) {
+      log("project already has a release version, using it");
+      return projectVersion;
+    }
+
+    String versionRange = versionRange(projectVersion);
+    List<VersionRangeRequest> requests = new ArrayList<>();
+    for (MavenProject module : reactor()) {
+      VersionRangeRequest request = new VersionRangeRequest(moduleArtifact(module, versionRange), repositories, null);
+      requests.add(request);
+      prefetch(request);
+    }
+
+    List<VersionRangeResult> results = new ArrayList<>(requests.size());
+    for (VersionRangeRequest request : requests)
+      results.add(resolve(request));
+
+    DefaultArtifact artifact = projectArtifact(versionRange);
+    VersionRangeResult released = RangeResolver.merge(new VersionRangeRequest(artifact, repositories, null), results);
+    return increment(highestVersion(versionRange, artifact, released));
+  }
+
   /**
    * Increment the given version based on the selected rule
    */
   String increment(String version) {
-    String[] components = version.toString().replaceFirst("-SNAPSHOT", "").split("[-\\.]");
+    ParsedVersion parsed = ParsedVersion.parse(version);
+    long major = parsed.component(0);
+    long minor = parsed.component(1);
     switch (getVersionIncrement()) {
       case major:
-        return String.join(".", Integer.toString(valueOf(components[0]) + 1), "1");
+        return (major + 1) + ".1";
 
       case minor:
-        if (components.length < 2)
-          return String.join(".", components[0], "1");
-
-        return String.join(".", components[0], Integer.toString(valueOf(components[1]) + 1));
+        return major + "." + (minor + 1);
 
       case patch:
-        if (components.length < 3)
-          return String.join(".", components[0], components[1], "1");
-
-        return String.join(".", components[0], components[1], Integer.toString(valueOf(components[2]) + 1));
+        return major + "." + minor + "." + (parsed.component(2) + 1);
 
       case patchDatetime:
-        if (components.length < 2)
-          return String.join(".", components[0], "1", Long.toString(Instant.now(getClock()).getEpochSecond()));
+        if (parsed.size() < 2)
+          return major + ".1." + Instant.now(getClock()).getEpochSecond();
 
-        return String.join(".", components[0], components[1], Long.toString(Instant.now(getClock()).getEpochSecond()));
+        return major + "." + minor + "." + Instant.now(getClock()).getEpochSecond();
     }
 
     throw new RuntimeException("Unknown version increment " + getVersionIncrement());
@@ -154,22 +230,30 @@ public class StickyNextVersionMojo
    * Derive the relevant range to search for to facilitate the correct increment based on the selected rule
    */
   String versionRange(String version) {
+    return versionRange(version, getVersionIncrement());
+  }
+
+  /**
+   * The range for the rule, bounds:prefetch asks for it without a mojo
+   */
+  static String versionRange(String version, VersionIncrementRule incrementRule) {
     String[] components = version.toString().split("[-\\.]");
-    switch (getVersionIncrement()) {
+    switch (incrementRule) {
       case major:
-        return "[" + components[0] + ",)";
+        return VersionRange.halfOpen(components[0], null).toString();
 
       case minor:
-        return "[" + components[0] + "," + (valueOf(components[0]) + 1) + ")";
+        return VersionRange.halfOpen(components[0], Integer.toString(valueOf(components[0]) + 1)).toString();
 
       case patch:
-        return "[" + components[0] + "." + components[1] + "," + components[0] + "." + (valueOf(components[1]) + 1) + ")";
+        return VersionRange.halfOpen(components[0] + "." + components[1],
+          components[0] + "." + (valueOf(components[1]) + 1)).toString();
 
       case patchDatetime:
-        return "[" + components[0] + "," + (valueOf(components[0]) + 1) + ")";
+        return VersionRange.halfOpen(components[0], Integer.toString(valueOf(components[0]) + 1)).toString();
     }
 
-    throw new RuntimeException("Unknown version increment " + getVersionIncrement());
+    throw new RuntimeException("Unknown version increment " + incrementRule);
   }
 
   /**
@@ -178,26 +262,19 @@ public class StickyNextVersionMojo
   String highestVersion(String versionRange) {
     DefaultArtifact artifact = projectArtifact(versionRange);
 
-    VersionRangeRequest request = new VersionRangeRequest(artifact, repositories, null);
-    VersionRangeResult v = resolve(request);
-
-    if (ignoreSnapshots()) {
-      List<Version> filtered = new ArrayList<Version>();
-      for (Version aVersion : v.getVersions()) {
-        if (!aVersion.toString().endsWith("SNAPSHOT")) {
-          filtered.add(aVersion);
-        }
-        else
-          debug("ignoring %s", aVersion);
-      }
-      v.setVersions(filtered);
-    }
+    return highestVersion(versionRange, artifact, resolve(new VersionRangeRequest(artifact, repositories, null)));
+  }
 
-    debug("found %s", v.getVersions());
+  private String highestVersion(String versionRange, DefaultArtifact artifact, VersionRangeResult v) {
+    Version highest = VersionIndex.highest(v.getVersions(), VersionRange.parse(versionRange), !ignoreSnapshots(), SLICE);
+    if (highest != null)
+      debugVersions(v.getVersions());
+    else if (!v.getVersions().isEmpty())
+      highest = scan(v);
 
-    if (v.getHighestVersion() != null) {
-      log("resolved %s:%s:%s to %s", artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), v.getHighestVersion());
-      return v.getHighestVersion().toString();
+    if (highest != null) {
+      log("resolved %s:%s:%s to %s", artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), highest);
+      return highest.toString();
     }
 
     //
@@ -208,13 +285,41 @@ public class StickyNextVersionMojo
       return selectDefaultVersion(versionRange, artifact);
     }
 
-    if (v.getExceptions().get(0) instanceof MetadataNotFoundException) {
-      debug("No metadata that means that there are no previous releases. Derive a default version", versionRange);
-      return selectDefaultVersion(versionRange, artifact);
+    // metadata missing from every repository means there are no previous releases, anything else could be hiding some
+    for (Exception exception : v.getExceptions())
+      if (!(exception instanceof MetadataNotFoundException))
+        throw new RuntimeException("There was an error resolving " + artifact.toString() + ", correct the issue and try again",
+          exception);
+
+    debug("No metadata that means that there are no previous releases. Derive a default version", versionRange);
+    return selectDefaultVersion(versionRange, artifact);
+  }
+
+  /**
+   * Nothing near the top of the versions will do so index them all
+   */
+  private Version scan(VersionRangeResult result) {
+    VersionIndex versions = VersionIndex.of(result);
+    debugVersions(versions.versions(true));
+    return versions.highest(!ignoreSnapshots());
+  }
+
+  /**
+   * Say which versions were ignored and which were found, whichever way the highest was picked, so -X explains the choice
+   */
+  private void debugVersions(List<Version> versions) {
+    if (!getLog().isDebugEnabled())
+      return;
+
+    List<Version> found = new ArrayList<>(versions.size());
+    for (Version version : versions) {
+      if (ignoreSnapshots() && ParsedVersion.parse(version).isSnapshot())
+        debug("ignoring %s", version);
+      else
+        found.add(version);
     }
 
-    throw new RuntimeException("There was an error resolving " + artifact.toString() + ", correct the issue and try again",
-      v.getExceptions().get(0));
+    debug("found %s", found);
   }
 
   private String selectDefaultVersion(String versionRange, DefaultArtifact artifact) {
@@ -225,19 +330,21 @@ public class StickyNextVersionMojo
 
   /** Derive a default version from the range when we do not get any results for the resolution */
   String deriveDefaultVersion(String versionRange) {
-    String[] components = versionRange.split("[\\[,\\.]");
+    String lower = VersionRange.parse(versionRange).getLower();
+    int dot = lower.indexOf('.');
+    String major = dot < 0 ? lower : lower.substring(0, dot);
     switch (getVersionIncrement()) {
       case major:
-        return String.valueOf(Long.valueOf(components[1]) - 1);
+        return String.valueOf(Long.valueOf(major) - 1);
 
       case minor:
-        return components[1] + ".0";
+        return major + ".0";
 
       case patch:
-        return components[1] + ".1";
+        return major + ".1";
 
       case patchDatetime:
-        return components[1] + ".1";
+        return major + ".1";
 
     }
 
@@ -258,13 +365,16 @@ public class StickyNextVersionMojo
     return artifact;
   }
 
+  DefaultArtifact moduleArtifact(MavenProject module, String versionRange) {
+    return new DefaultArtifact(module.getGroupId(), module.getArtifactId(), module.getPackaging(), versionRange);
+  }
+
+  void prefetch(VersionRangeRequest request) {
+    resolver.prefetch(request);
+  }
+
   VersionRangeResult resolve(VersionRangeRequest request) {
-    try {
-      return repository.resolveVersionRange(repositorySession, request);
-    }
-    catch (VersionRangeResolutionException e) {
-      throw new RuntimeException(e);
-    }
+    return resolver.resolve(request);
   }
 
   private void debug(String message, Object... parameters) {
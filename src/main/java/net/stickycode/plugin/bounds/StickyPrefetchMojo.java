@@ -0,0 +1,185 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.util.listener.ChainedTransferListener;
+
+/**
+ * Resolve every range the reactor uses so the metadata is in the local repository before the build needs it, the ranges of
+ * the dependencies and dependency management of each module, the artifacts of bounds:current-version and the project range
+ * of bounds:next-version.
+ */
+@Mojo(threadSafe = true, name = "prefetch", aggregator = true, requiresDirectInvocation = true)
+public class StickyPrefetchMojo
+    extends AbstractBoundsMojo {
+
+  /**
+   * The number of version ranges resolved concurrently, the lookups mostly wait on the network so this can be high
+   */
+  @Parameter(defaultValue = "32")
+  private int prefetchThreads = 32;
+
+  @Parameter(defaultValue = "${plugin}", readonly = true)
+  private PluginDescriptor plugin;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    long started = System.nanoTime();
+    Map<String, VersionRangeRequest> requests = ranges(reactor());
+
+    TransferCounter transfers = new TransferCounter();
+    // the metadata is wanted in the local repository even when the lock would answer the build
+    DefaultRepositorySystemSession counted = new DefaultRepositorySystemSession(session);
+    counted.setConfigProperty(RangeResolver.LOCK_BYPASS, Boolean.TRUE);
+    counted.setTransferListener(ChainedTransferListener.newInstance(session.getTransferListener(), transfers));
+
+    // no disk cache, the point is to have the metadata in the local repository
+    List<String> failures = new ArrayList<>();
+    try (RangeResolver resolver = new RangeResolver(repository, counted, prefetchThreads)) {
+      if (isAdaptiveConcurrency())
+        resolver.withLimits(RepositoryLimits.of(counted), getLog()::debug);
+
+      for (VersionRangeRequest request : requests.values())
+        resolver.prefetch(request);
+
+      for (VersionRangeRequest request : requests.values()) {
+        try {
+          VersionRangeResult result = resolver.resolve(request);
+          if (result.getVersions().isEmpty())
+            failures.add(request.getArtifact() + " has no versions");
+        }
+        catch (RuntimeException e) {
+          failures.add(request.getArtifact() + ": " + e.getMessage());
+        }
+      }
+
+      reportResolution(resolver);
+    }
+
+    for (String failure : failures)
+      getLog().warn(failure);
+
+    getLog().info(String.format("Prefetched %d ranges in %d ms, %d failed, %d downloads of %d bytes%n%s",
+      requests.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), failures.size(),
+      transfers.downloads(), transfers.bytes(), transfers));
+  }
+
+  /**
+   * Every distinct range of the modules
+   */
+  Map<String, VersionRangeRequest> ranges(List<MavenProject> reactor) throws MojoExecutionException {
+    Map<String, VersionRangeRequest> requests = new LinkedHashMap<>();
+    for (MavenProject module : reactor) {
+      select(module);
+      List<Dependency> dependencies = new ArrayList<>(project.getDependencies());
+      if (project.getDependencyManagement() != null)
+        dependencies.addAll(project.getDependencyManagement().getDependencies());
+
+      for (Dependency dependency : dependencies)
+        if (dependency.getVersion() != null && VersionRange.parse(dependency.getVersion()).isRange())
+          add(requests, new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(),
+            dependency.getClassifier(), dependency.getType(), dependency.getVersion().trim()));
+
+      for (Plugin each : project.getBuildPlugins())
+        if (each.getKey().equals(pluginKey()))
+          goals(requests, each);
+    }
+    return requests;
+  }
+
+  String pluginKey() {
+    return plugin.getPluginLookupKey();
+  }
+
+  private void goals(Map<String, VersionRangeRequest> requests, Plugin bounds) throws MojoExecutionException {
+    for (PluginExecution execution : bounds.getExecutions()) {
+      Xpp3Dom configuration = configuration(execution, bounds);
+      if (execution.getGoals().contains("current-version"))
+        currentVersion(requests, configuration);
+      if (execution.getGoals().contains("next-version"))
+        nextVersion(requests, configuration);
+    }
+  }
+
+  private void currentVersion(Map<String, VersionRangeRequest> requests, Xpp3Dom configuration) {
+    List<String> gavs = new ArrayList<>();
+    gavs.addAll(values(configuration, "artifacts"));
+    gavs.addAll(values(configuration, "coordinates"));
+
+    for (String gav : gavs) {
+      try {
+        add(requests, StickyCurrentVersionMojo.parseCoordinates(new ArtifactLookup().withGav(gav)).getArtifact());
+      }
+      catch (RuntimeException e) {
+        getLog().warn(e.getMessage());
+      }
+    }
+  }
+
+  private void nextVersion(Map<String, VersionRangeRequest> requests, Xpp3Dom configuration)
+      throws MojoExecutionException {
+    if (!project.getVersion().endsWith("-SNAPSHOT"))
+      return;
+
+    Xpp3Dom rule = configuration != null ? configuration.getChild("incrementRule") : null;
+    VersionIncrementRule incrementRule = rule != null && rule.getValue() != null
+      ? incrementRule(rule.getValue().trim())
+      : VersionIncrementRule.minor;
+
+    add(requests, new DefaultArtifact(project.getGroupId(), project.getArtifactId(), project.getPackaging(),
+      StickyNextVersionMojo.versionRange(project.getVersion(), incrementRule)));
+  }
+
+  private VersionIncrementRule incrementRule(String value) throws MojoExecutionException {
+    try {
+      return VersionIncrementRule.valueOf(value);
+    }
+    catch (IllegalArgumentException e) {
+      throw new MojoExecutionException(String.format("Unknown incrementRule %s of %s, expected one of %s", value,
+        project.getArtifactId(), Arrays.toString(VersionIncrementRule.values())), e);
+    }
+  }
+
+  /**
+   * The configuration of the execution over that of the plugin, merged into a copy as merging changes the dominant one
+   */
+  private Xpp3Dom configuration(PluginExecution execution, Plugin bounds) {
+    Xpp3Dom configuration = (Xpp3Dom) execution.getConfiguration();
+    return Xpp3Dom.mergeXpp3Dom(configuration != null ? new Xpp3Dom(configuration) : null, (Xpp3Dom) bounds.getConfiguration());
+  }
+
+  private List<String> values(Xpp3Dom configuration, String name) {
+    List<String> values = new ArrayList<>();
+    Xpp3Dom parent = configuration != null ? configuration.getChild(name) : null;
+    if (parent != null)
+      for (Xpp3Dom child : parent.getChildren())
+        if (child.getValue() != null)
+          values.add(child.getValue().trim());
+    return values;
+  }
+
+  private void add(Map<String, VersionRangeRequest> requests, Artifact artifact) {
+    VersionRangeRequest request = new VersionRangeRequest(artifact, repositories, null);
+    requests.putIfAbsent(ResolutionCache.key(request), request);
+  }
+
+}
@@ -0,0 +1,41 @@
+package net.stickycode.plugin.bounds;
+
+import java.time.Duration;
+
+import org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * A deadline for all the resolution of a build, started by the first resolver that is given it and shared with every one
+ * after so a slow repository cannot hold up a release for longer than it is allowed
+ */
+public class TimeBudget {
+
+  private final Duration budget;
+
+  private final long deadline;
+
+  TimeBudget(Duration budget, long now) {
+    this.budget = budget;
+    this.deadline = now + budget.toNanos();
+  }
+
+  public static TimeBudget of(RepositorySystemSession session, Duration budget) {
+    return SessionSingletons.of(session, TimeBudget.class.getName(), TimeBudget.class,
+      () -> new TimeBudget(budget, System.nanoTime()));
+  }
+
+  /**
+   * The nanoseconds left, never negative
+   */
+  public long remaining() {
+    return Math.max(0, deadline - System.nanoTime());
+  }
+
+  public boolean isExpired() {
+    return remaining() == 0;
+  }
+
+  public Duration getBudget() {
+    return budget;
+  }
+}
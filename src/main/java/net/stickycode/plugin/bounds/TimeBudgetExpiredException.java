@@ -0,0 +1,11 @@
+package net.stickycode.plugin.bounds;
+
+@SuppressWarnings("serial")
+public class TimeBudgetExpiredException
+    extends RuntimeException {
+
+  public TimeBudgetExpiredException(String coordinate) {
+    super("Ran out of time resolving " + coordinate);
+  }
+
+}
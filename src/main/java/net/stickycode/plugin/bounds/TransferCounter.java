@@ -0,0 +1,71 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.aether.transfer.AbstractTransferListener;
+import org.eclipse.aether.transfer.TransferEvent;
+
+/**
+ * Counts the downloads and bytes per repository while the resolver is fetching metadata
+ */
+public class TransferCounter
+    extends AbstractTransferListener {
+
+  private final Map<String, Counts> repositories = new ConcurrentHashMap<>();
+
+  @Override
+  public void transferSucceeded(TransferEvent event) {
+    Counts counts = counts(event);
+    counts.downloads.incrementAndGet();
+    counts.bytes.addAndGet(event.getTransferredBytes());
+  }
+
+  @Override
+  public void transferFailed(TransferEvent event) {
+    counts(event).failures.incrementAndGet();
+  }
+
+  private Counts counts(TransferEvent event) {
+    return repositories.computeIfAbsent(event.getResource().getRepositoryId(), k -> new Counts());
+  }
+
+  public long bytes() {
+    long bytes = 0;
+    for (Counts counts : repositories.values())
+      bytes += counts.bytes.get();
+    return bytes;
+  }
+
+  public long downloads() {
+    long downloads = 0;
+    for (Counts counts : repositories.values())
+      downloads += counts.downloads.get();
+    return downloads;
+  }
+
+  /**
+   * A line per repository with its downloads, failures and bytes
+   */
+  @Override
+  public String toString() {
+    StringBuilder summary = new StringBuilder();
+    for (Map.Entry<String, Counts> repository : new TreeMap<>(repositories).entrySet()) {
+      Counts counts = repository.getValue();
+      summary.append(String.format("  %s: %d downloaded, %d failed, %d bytes%n",
+        repository.getKey(), counts.downloads.get(), counts.failures.get(), counts.bytes.get()));
+    }
+    return summary.toString();
+  }
+
+  private static class Counts {
+
+    private final AtomicLong downloads = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+  }
+}
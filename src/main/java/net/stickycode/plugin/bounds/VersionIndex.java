@@ -0,0 +1,154 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.version.Version;
+
+/**
+ * The versions of an artifact parsed and sorted once, with the releases kept apart from the snapshots, so the highest
+ * version in a range is a binary search rather than a filtered copy of the whole list.
+ */
+public final class VersionIndex {
+
+  private final Entry[] all;
+
+  private final Entry[] releases;
+
+  private final List<Exception> exceptions;
+
+  private VersionIndex(Entry[] all, List<Exception> exceptions) {
+    this.all = all;
+    this.releases = Arrays.stream(all).filter(e -> !e.parsed.isSnapshot()).toArray(Entry[]::new);
+    this.exceptions = exceptions;
+  }
+
+  public static VersionIndex of(VersionRangeResult result) {
+    Entry[] entries = new Entry[result.getVersions().size()];
+    for (int i = 0; i < entries.length; i++) {
+      Version version = result.getVersions().get(i);
+      entries[i] = new Entry(version, ParsedVersion.parse(version));
+    }
+    // the resolver's ordering, stable so versions it considers equal keep the order it gave them
+    Arrays.sort(entries, Comparator.comparing(e -> e.parsed));
+    return new VersionIndex(entries, Collections.unmodifiableList(new ArrayList<>(result.getExceptions())));
+  }
+
+  /**
+   * The highest version within the range walking down from the top of versions the resolver gave in ascending order, so
+   * only the versions above the answer are parsed. Null when none of the top slice of versions is a match, only the full
+   * index can tell then.
+   */
+  public static Version highest(List<Version> ascending, VersionRange range, boolean includeSnapshots, int slice) {
+    int lowest = Math.max(0, ascending.size() - slice);
+    for (int i = ascending.size() - 1; i >= lowest; i--) {
+      ParsedVersion parsed = ParsedVersion.parse(ascending.get(i));
+      if ((includeSnapshots || !parsed.isSnapshot()) && (!range.isRange() || range.contains(parsed)))
+        return ascending.get(i);
+    }
+    return null;
+  }
+
+  /**
+   * The highest version, null if there is none
+   */
+  public Version highest(boolean includeSnapshots) {
+    Entry[] entries = entries(includeSnapshots);
+    return entries.length == 0 ? null : entries[entries.length - 1].version;
+  }
+
+  /**
+   * The highest version within the range, null if there is none
+   */
+  public Version highest(VersionRange range, boolean includeSnapshots) {
+    if (!range.isRange())
+      return highest(includeSnapshots);
+
+    Entry[] entries = entries(includeSnapshots);
+    Entry highest = null;
+    for (VersionRange.Restriction restriction : range.getRestrictions()) {
+      Entry found = highest(entries, restriction);
+      if (found != null && (highest == null || found.parsed.compareTo(highest.parsed) > 0))
+        highest = found;
+    }
+    return highest == null ? null : highest.version;
+  }
+
+  private Entry highest(Entry[] entries, VersionRange.Restriction restriction) {
+    int index = entries.length - 1;
+    if (restriction.getUpper() != null)
+      index = below(entries, ParsedVersion.parse(restriction.getUpper()), restriction.isUpperInclusive());
+
+    if (index < 0)
+      return null;
+
+    Entry candidate = entries[index];
+    if (restriction.getLower() != null) {
+      int compared = candidate.parsed.compareTo(ParsedVersion.parse(restriction.getLower()));
+      if (compared < 0 || (compared == 0 && !restriction.isLowerInclusive()))
+        return null;
+    }
+
+    return candidate;
+  }
+
+  /**
+   * The position of the last entry below the bound, or at it when inclusive
+   */
+  private int below(Entry[] entries, ParsedVersion bound, boolean inclusive) {
+    int low = 0;
+    int high = entries.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int compared = entries[middle].parsed.compareTo(bound);
+      if (compared < 0 || (compared == 0 && inclusive))
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low - 1;
+  }
+
+  public List<Version> versions(boolean includeSnapshots) {
+    Entry[] entries = entries(includeSnapshots);
+    List<Version> versions = new ArrayList<>(entries.length);
+    for (Entry entry : entries)
+      versions.add(entry.version);
+    return versions;
+  }
+
+  /**
+   * The snapshots that are left out when they are not included
+   */
+  public List<Version> snapshots() {
+    List<Version> snapshots = new ArrayList<>(all.length - releases.length);
+    for (Entry entry : all)
+      if (entry.parsed.isSnapshot())
+        snapshots.add(entry.version);
+    return snapshots;
+  }
+
+  public List<Exception> getExceptions() {
+    return exceptions;
+  }
+
+  private Entry[] entries(boolean includeSnapshots) {
+    return includeSnapshots ? all : releases;
+  }
+
+  private static final class Entry {
+
+    private final Version version;
+
+    private final ParsedVersion parsed;
+
+    Entry(Version version, ParsedVersion parsed) {
+      this.version = version;
+      this.parsed = parsed;
+    }
+  }
+}
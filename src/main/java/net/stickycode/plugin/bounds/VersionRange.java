@@ -0,0 +1,250 @@
+package net.stickycode.plugin.bounds;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A version range as written in a pom, parsed by hand into an immutable model. Something that is not a range, like a plain
+ * version or a property reference, parses to a range with no restrictions rather than failing.
+ *
+ * Versions are limited to letters, digits, dots and dashes which covers the ranges we are prepared to rewrite.
+ */
+public final class VersionRange {
+
+  private static final VersionRange NONE = new VersionRange("", Collections.emptyList());
+
+  private final String text;
+
+  private final List<Restriction> restrictions;
+
+  private VersionRange(String text, List<Restriction> restrictions) {
+    this.text = text;
+    this.restrictions = restrictions;
+  }
+
+  public static VersionRange parse(String text) {
+    if (text == null)
+      return NONE;
+
+    List<Restriction> restrictions = new ArrayList<>(1);
+    int position = 0;
+    while (position < text.length()) {
+      Restriction restriction = restriction(text, position);
+      if (restriction == null)
+        return new VersionRange(text, Collections.emptyList());
+
+      restrictions.add(restriction);
+      position = restriction.end;
+      if (position < text.length()) {
+        if (text.charAt(position) != ',')
+          return new VersionRange(text, Collections.emptyList());
+        position++;
+      }
+    }
+
+    return new VersionRange(text, Collections.unmodifiableList(restrictions));
+  }
+
+  /**
+   * [lower,upper) or [lower,) when upper is null
+   */
+  public static VersionRange halfOpen(String lower, String upper) {
+    return parse("[" + lower + "," + (upper == null ? "" : upper) + ")");
+  }
+
+  /**
+   * Parse one restriction starting at the bracket, null if the text is not a restriction
+   */
+  private static Restriction restriction(String text, int start) {
+    char open = text.charAt(start);
+    if (open != '[' && open != '(')
+      return null;
+
+    int close = start + 1;
+    while (close < text.length() && text.charAt(close) != ']' && text.charAt(close) != ')')
+      close++;
+    if (close == text.length())
+      return null;
+
+    String inside = text.substring(start + 1, close);
+    int comma = inside.indexOf(',');
+    String lower = version(comma < 0 ? inside : inside.substring(0, comma));
+    String upper = comma < 0 ? lower : version(inside.substring(comma + 1));
+    if (lower == null || upper == null)
+      return null;
+
+    boolean lowerInclusive = open == '[';
+    boolean upperInclusive = text.charAt(close) == ']';
+    if (comma < 0 && (lower.isEmpty() || !lowerInclusive || !upperInclusive))
+      return null;
+
+    return new Restriction(
+      lower.isEmpty() ? null : lower, lowerInclusive,
+      upper.isEmpty() ? null : upper, upperInclusive,
+      comma < 0 ? -1 : start + 1 + comma, close + 1);
+  }
+
+  /**
+   * The trimmed version or null if it has characters a version should not
+   */
+  private static String version(String text) {
+    String version = text.trim();
+    for (int i = 0; i < version.length(); i++) {
+      char c = version.charAt(i);
+      if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && c != '.' && c != '-')
+        return null;
+    }
+    return version;
+  }
+
+  public boolean isRange() {
+    return !restrictions.isEmpty();
+  }
+
+  public boolean isMultiRange() {
+    return restrictions.size() > 1;
+  }
+
+  public List<Restriction> getRestrictions() {
+    return restrictions;
+  }
+
+  /**
+   * A single exact version like [1.2] that starts with a number
+   */
+  public boolean isFixed() {
+    if (restrictions.size() != 1)
+      return false;
+
+    Restriction restriction = restrictions.get(0);
+    return restriction.isExact() && Character.isDigit(restriction.lower.charAt(0));
+  }
+
+  /**
+   * A single range like [1.2,2) or [1.2,), inclusive of a lower bound and exclusive of any upper bound
+   */
+  public boolean isHalfOpen() {
+    if (restrictions.size() != 1)
+      return false;
+
+    Restriction restriction = restrictions.get(0);
+    return !restriction.isExact()
+      && restriction.lower != null && restriction.lowerInclusive
+      && (restriction.upper == null || !restriction.upperInclusive);
+  }
+
+  public String getLower() {
+    return restrictions.isEmpty() ? null : restrictions.get(0).lower;
+  }
+
+  public String getUpper() {
+    return restrictions.isEmpty() ? null : restrictions.get(restrictions.size() - 1).upper;
+  }
+
+  /**
+   * The version is within one of the restrictions, nothing is within something that is not a range
+   */
+  public boolean contains(String version) {
+    return contains(ParsedVersion.parse(version));
+  }
+
+  boolean contains(ParsedVersion parsed) {
+    for (Restriction restriction : restrictions)
+      if (restriction.contains(parsed))
+        return true;
+
+    return false;
+  }
+
+  /**
+   * The range with the upper bound removed keeping the text of the lower bound as it was written, [1.0 ,2) becomes [1.0 ,)
+   */
+  public String withoutUpperBound() {
+    if (!isHalfOpen())
+      throw new VersionWasNotARangeException(text);
+
+    return text.substring(0, restrictions.get(0).comma + 1) + ")";
+  }
+
+  /**
+   * The half open range from the new lower bound up to the upper bound of this one, [1.1,2) with 1.3 becomes [1.3,2)
+   */
+  public String withLowerBound(String lower) {
+    return "[" + lower + "," + (getUpper() != null ? getUpper() : "") + ")";
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+  public static final class Restriction {
+
+    private final String lower;
+
+    private final boolean lowerInclusive;
+
+    private final String upper;
+
+    private final boolean upperInclusive;
+
+    private final int comma;
+
+    private final int end;
+
+    /**
+     * The bounds parsed once, so checking many versions against the range does not parse them again
+     */
+    private final ParsedVersion lowerVersion;
+
+    private final ParsedVersion upperVersion;
+
+    Restriction(String lower, boolean lowerInclusive, String upper, boolean upperInclusive, int comma, int end) {
+      this.lower = lower;
+      this.lowerInclusive = lowerInclusive;
+      this.upper = upper;
+      this.upperInclusive = upperInclusive;
+      this.comma = comma;
+      this.end = end;
+      this.lowerVersion = lower == null ? null : ParsedVersion.parse(lower);
+      this.upperVersion = upper == null ? null : (upper.equals(lower) ? lowerVersion : ParsedVersion.parse(upper));
+    }
+
+    public String getLower() {
+      return lower;
+    }
+
+    public boolean isLowerInclusive() {
+      return lowerInclusive;
+    }
+
+    public String getUpper() {
+      return upper;
+    }
+
+    public boolean isUpperInclusive() {
+      return upperInclusive;
+    }
+
+    public boolean isExact() {
+      return comma < 0;
+    }
+
+    boolean contains(ParsedVersion version) {
+      if (lowerVersion != null) {
+        int compared = version.compareTo(lowerVersion);
+        if (compared < 0 || (compared == 0 && !lowerInclusive))
+          return false;
+      }
+
+      if (upperVersion != null) {
+        int compared = version.compareTo(upperVersion);
+        if (compared > 0 || (compared == 0 && !upperInclusive))
+          return false;
+      }
+
+      return true;
+    }
+  }
+}
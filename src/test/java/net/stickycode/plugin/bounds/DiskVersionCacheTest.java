@@ -0,0 +1,114 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Collections;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.junit.Test;
+
+public class DiskVersionCacheTest {
+
+  private final RemoteRepository central = new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2")
+    .build();
+
+  @Test
+  public void roundTrip() throws IOException, InvalidVersionSpecificationException {
+    DiskVersionCache cache = cache(at(0));
+    VersionRangeRequest request = request("[1,2)");
+    cache.put(request, result(request, "1.1", "1.2", "1.10"));
+
+    VersionRangeResult cached = cache.get(request);
+    assertThat(cached.getVersions().toString()).isEqualTo("[1.1, 1.2, 1.10]");
+    assertThat(cached.getRepository(cached.getHighestVersion())).isEqualTo(central);
+    assertThat(cache.get(request("[1,3)"))).isNull();
+  }
+
+  @Test
+  public void expires() throws IOException, InvalidVersionSpecificationException {
+    File directory = Files.createTempDirectory("bounds-cache").toFile();
+    VersionRangeRequest request = request("[1,2)");
+    new DiskVersionCache(directory, Duration.ofMinutes(10)).withClock(at(0)).put(request, result(request, "1.1"));
+
+    assertThat(new DiskVersionCache(directory, Duration.ofMinutes(10)).withClock(at(9)).get(request)).isNotNull();
+    assertThat(new DiskVersionCache(directory, Duration.ofMinutes(10)).withClock(at(11)).get(request)).isNull();
+  }
+
+  @Test
+  public void emptyResultsAreNotKept() throws IOException, InvalidVersionSpecificationException {
+    DiskVersionCache cache = cache(at(0));
+    VersionRangeRequest request = request("[1,2)");
+    cache.put(request, result(request));
+    assertThat(cache.get(request)).isNull();
+  }
+
+  @Test
+  public void negatives() throws IOException, InvalidVersionSpecificationException {
+    File directory = Files.createTempDirectory("bounds-cache").toFile();
+    DiskVersionCache cache = new DiskVersionCache(directory, Duration.ofMinutes(60), Duration.ofMinutes(5)).withClock(at(0));
+    VersionRangeRequest empty = request("[1,2)");
+    cache.put(empty, result(empty));
+    assertThat(cache.get(empty).getVersions().isEmpty()).isTrue();
+
+    VersionRangeRequest missing = new VersionRangeRequest(new DefaultArtifact("net.stickycode", "sticky-missing", "jar", "[1,2)"),
+      Collections.singletonList(central), null);
+    cache.put(missing, result(missing).addException(new MetadataNotFoundException(null, null, "Nothing")));
+    VersionRangeRequest otherRange = new VersionRangeRequest(new DefaultArtifact("net.stickycode", "sticky-missing", "jar", "[3,)"),
+      Collections.singletonList(central), null);
+    assertThat(cache.get(otherRange).getExceptions().get(0) instanceof MetadataNotFoundException).isTrue();
+
+    DiskVersionCache later = new DiskVersionCache(directory, Duration.ofMinutes(60), Duration.ofMinutes(5)).withClock(at(6));
+    assertThat(later.get(empty)).isNull();
+    assertThat(later.get(otherRange)).isNull();
+  }
+
+  @Test
+  public void purgeNegatives() throws IOException, InvalidVersionSpecificationException {
+    DiskVersionCache cache = new DiskVersionCache(Files.createTempDirectory("bounds-cache").toFile(), Duration.ofMinutes(60),
+      Duration.ofMinutes(5)).withClock(at(0));
+    VersionRangeRequest empty = request("[1,2)");
+    cache.put(empty, result(empty));
+    VersionRangeRequest found = request("[2,3)");
+    cache.put(found, result(found, "2.1"));
+
+    assertThat(cache.purgeNegative()).isEqualTo(1);
+    assertThat(cache.get(empty)).isNull();
+    assertThat(cache.get(found)).isNotNull();
+  }
+
+  private DiskVersionCache cache(Clock clock) throws IOException {
+    return new DiskVersionCache(Files.createTempDirectory("bounds-cache").toFile(), Duration.ofMinutes(10)).withClock(clock);
+  }
+
+  private Clock at(int minutes) {
+    return Clock.fixed(Instant.ofEpochSecond(1000000 + minutes * 60), ZoneId.of("UTC"));
+  }
+
+  private VersionRangeRequest request(String range) {
+    return new VersionRangeRequest(new DefaultArtifact("net.stickycode", "sticky-coercion", "jar", range),
+      Collections.singletonList(central), null);
+  }
+
+  private VersionRangeResult result(VersionRangeRequest request, String... versions) throws InvalidVersionSpecificationException {
+    GenericVersionScheme scheme = new GenericVersionScheme();
+    VersionRangeResult result = new VersionRangeResult(request);
+    for (String version : versions) {
+      result.addVersion(scheme.parseVersion(version));
+      result.setRepository(scheme.parseVersion(version), central);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,104 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.junit.Test;
+
+public class IncrementalStateTest {
+
+  @Test
+  public void theStateIsReadBack() throws IOException {
+    Path file = Files.createTempDirectory("bounds").resolve("bounds-upgrade.state");
+    IncrementalState state = new IncrementalState(file);
+    state.put("net.stickycode:sticky-bounds", new IncrementalState.Entry("abc", "def",
+      Arrays.asList("net.stickycode:sticky-coercion:jar:[2.1,)", "net.stickycode:sticky-configured:jar:[3,)")));
+    state.save();
+
+    IncrementalState.Entry entry = new IncrementalState(file).load().get("net.stickycode:sticky-bounds");
+    assertThat(entry.getPom()).isEqualTo("abc");
+    assertThat(entry.getFingerprint()).isEqualTo("def");
+    assertThat(entry.getCoordinates().toString())
+      .isEqualTo("[net.stickycode:sticky-coercion:jar:[2.1,), net.stickycode:sticky-configured:jar:[3,)]");
+  }
+
+  @Test
+  public void aModuleIsUnchangedUntilItsPomOrVersionsChange() throws IOException, MojoExecutionException {
+    Path directory = Files.createTempDirectory("bounds");
+    File pom = directory.resolve("pom.xml").toFile();
+    Files.copy(new File("src/it/upgrade/pom.xml").toPath(), pom.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Path file = directory.resolve("bounds-upgrade.state");
+
+    IncrementalState state = new IncrementalState(file);
+    StickyBoundsUpgradeMojo mojo = mojo(pom, "3.6");
+    assertThat(mojo.isUnchanged(state)).isFalse();
+    mojo.resolveLatestVersionRange(dependency(), "[2.1,3)");
+    mojo.remember(state, PomDocument.load(pom));
+    state.save();
+
+    assertThat(mojo(pom, "3.6").isUnchanged(new IncrementalState(file).load())).isTrue();
+    assertThat(mojo(pom, "3.7").isUnchanged(new IncrementalState(file).load())).isFalse();
+
+    StickyBoundsUpgradeMojo reconfigured = new StickyBoundsUpgradeMojo() {
+
+      @Override
+      String configuration() {
+        return super.configuration().replace("includeSnapshots=false", "includeSnapshots=true");
+      }
+    };
+    configure(reconfigured, pom, "3.6");
+    assertThat(reconfigured.isUnchanged(new IncrementalState(file).load())).isFalse();
+
+    Files.write(pom.toPath(), "<project/>".getBytes());
+    assertThat(mojo(pom, "3.6").isUnchanged(new IncrementalState(file).load())).isFalse();
+  }
+
+  private StickyBoundsUpgradeMojo mojo(File pom, String highest) {
+    return configure(new StickyBoundsUpgradeMojo(), pom, highest);
+  }
+
+  private StickyBoundsUpgradeMojo configure(StickyBoundsUpgradeMojo mojo, File pom, String highest) {
+    mojo.project = new MavenProject();
+    mojo.project.setGroupId("net.stickycode.plugins");
+    mojo.project.setArtifactId("bounds-upgrade-it");
+    mojo.project.setFile(pom);
+    mojo.use(new ReactorVersions());
+    mojo.use(new RangeResolver(null, new DefaultRepositorySystemSession(), 2) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        VersionRangeResult result = new VersionRangeResult(request);
+        try {
+          result.addVersion(new GenericVersionScheme().parseVersion("3.1"));
+          result.addVersion(new GenericVersionScheme().parseVersion(highest));
+        }
+        catch (InvalidVersionSpecificationException e) {
+          throw new RuntimeException(e);
+        }
+        return result;
+      }
+    });
+    return mojo;
+  }
+
+  private Dependency dependency() {
+    Dependency dependency = new Dependency();
+    dependency.setGroupId("net.stickycode");
+    dependency.setArtifactId("sticky-coercion");
+    return dependency;
+  }
+}
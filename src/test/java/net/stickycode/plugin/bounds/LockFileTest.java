@@ -0,0 +1,118 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResolutionException;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.junit.Test;
+
+public class LockFileTest {
+
+  @Test
+  public void roundTrip() throws IOException {
+    File file = new File("target/lock/roundTrip.lock");
+    LockFile lock = new LockFile();
+    lock.put(new DefaultArtifact("net.stickycode:sticky-coercion:[2.1,3)"), "2.6");
+    lock.put(new DefaultArtifact("net.stickycode:sticky-bootstrap:[3.1,4)"), "3.4");
+    lock.write(file.toPath());
+
+    assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+      .contains("net.stickycode:sticky-bootstrap:[3.1,4) = 3.4" + System.lineSeparator()
+        + "net.stickycode:sticky-coercion:[2.1,3) = 2.6");
+
+    LockFile read = LockFile.read(file.toPath());
+    assertThat(read.size()).isEqualTo(2);
+    assertThat(read.version(new DefaultArtifact("net.stickycode:sticky-coercion:jar:tests:[2.1,3)"))).isEqualTo("2.6");
+    assertThat(read.version(new DefaultArtifact("net.stickycode:sticky-coercion:[2.2,3)"))).isNull();
+  }
+
+  @Test
+  public void answersFromTheLock()
+      throws IOException, InvalidVersionSpecificationException, VersionRangeResolutionException {
+    File file = new File("target/lock/answers.lock");
+    LockFile lock = new LockFile();
+    lock.put(new DefaultArtifact("net.stickycode:sticky-coercion:[2.1,3)"), "2.6");
+    lock.write(file.toPath());
+
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    session.setConfigProperty("bounds.lockFile", file.getPath());
+    Version resolvedVersion = new GenericVersionScheme().parseVersion("9.9");
+    LockedVersionRangeResolver resolver = new LockedVersionRangeResolver((s, request) -> {
+      VersionRangeResult result = new VersionRangeResult(request);
+      result.addVersion(resolvedVersion);
+      return result;
+    });
+
+    VersionRangeResult locked = resolver.resolveVersionRange(session,
+      new VersionRangeRequest(new DefaultArtifact("net.stickycode:sticky-coercion:[2.1,3)"), null, null));
+    assertThat(locked.getVersions().toString()).isEqualTo("[2.6]");
+
+    VersionRangeResult resolved = resolver.resolveVersionRange(session,
+      new VersionRangeRequest(new DefaultArtifact("net.stickycode:sticky-coercion:[2.7,3)"), null, null));
+    assertThat(resolved.getVersions().toString()).isEqualTo("[9.9]");
+  }
+
+  @Test
+  public void expiredLocksAreIgnored() throws IOException, VersionRangeResolutionException {
+    File file = new File("target/lock/expired.lock");
+    LockFile lock = new LockFile();
+    lock.put(new DefaultArtifact("net.stickycode:sticky-coercion:[2.1,3)"), "2.6");
+    lock.write(file.toPath());
+    file.setLastModified(System.currentTimeMillis() - 3_600_000);
+
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    session.setConfigProperty("bounds.lockFile", file.getPath());
+    session.setConfigProperty("bounds.lockTimeToLive", "30");
+    LockedVersionRangeResolver resolver = new LockedVersionRangeResolver((s, request) -> new VersionRangeResult(request));
+
+    VersionRangeResult resolved = resolver.resolveVersionRange(session,
+      new VersionRangeRequest(new DefaultArtifact("net.stickycode:sticky-coercion:[2.1,3)"), null, null));
+    assertThat(resolved.getVersions().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void aStaleLockIsRegeneratedWithTheExtensionActive()
+      throws IOException, InvalidVersionSpecificationException, VersionRangeResolutionException {
+    File file = new File("target/lock/stale.lock");
+    LockFile lock = new LockFile();
+    lock.put(new DefaultArtifact("net.stickycode:sticky-coercion:[2.1,3)"), "2.6");
+    lock.write(file.toPath());
+
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    session.setConfigProperty("bounds.lockFile", file.getPath());
+    Version released = new GenericVersionScheme().parseVersion("2.9");
+    LockedVersionRangeResolver extension = new LockedVersionRangeResolver((s, request) -> {
+      VersionRangeResult result = new VersionRangeResult(request);
+      result.addVersion(released);
+      return result;
+    });
+
+    StickyLockMojo mojo = new StickyLockMojo();
+    mojo.session = session;
+    mojo.repository = (RepositorySystem) Proxy.newProxyInstance(getClass().getClassLoader(),
+      new Class<?>[] { RepositorySystem.class },
+      (proxy, method, arguments) -> extension.resolveVersionRange((RepositorySystemSession) arguments[0],
+        (VersionRangeRequest) arguments[1]));
+
+    VersionRangeRequest request = new VersionRangeRequest(new DefaultArtifact("net.stickycode:sticky-coercion:[2.1,3)"), null,
+      null);
+    assertThat(extension.resolveVersionRange(session, request).getVersions().toString()).isEqualTo("[2.6]");
+    try (RangeResolver resolver = mojo.newResolver(1)) {
+      assertThat(resolver.index(request).highest(false).toString()).isEqualTo("2.9");
+    }
+  }
+}
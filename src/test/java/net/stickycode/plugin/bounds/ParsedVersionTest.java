@@ -0,0 +1,59 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import org.junit.Test;
+
+public class ParsedVersionTest {
+
+  @Test
+  public void components() {
+    ParsedVersion version = ParsedVersion.parse("20.10.1.3.FINAL");
+    assertThat(version.size()).isEqualTo(4);
+    assertThat(version.component(0)).isEqualTo(20L);
+    assertThat(version.component(3)).isEqualTo(3L);
+    assertThat(version.component(4)).isEqualTo(0L);
+    assertThat(version.getQualifier()).isEqualTo("final");
+    assertThat(ParsedVersion.parse("1.2.123456789012").component(2)).isEqualTo(123456789012L);
+  }
+
+  @Test
+  public void snapshots() {
+    assertThat(ParsedVersion.parse("1.999-SNAPSHOT").isSnapshot()).isTrue();
+    assertThat(ParsedVersion.parse("1.999").isSnapshot()).isFalse();
+    // as the goals have always checked, only an upper case SNAPSHOT counts
+    assertThat(ParsedVersion.parse("1.999-snapshot").isSnapshot()).isFalse();
+  }
+
+  @Test
+  public void ordering() {
+    lower("1.9", "1.10");
+    lower("1.999-SNAPSHOT", "1.999");
+    lower("1.0-alpha-1", "1.0-beta-1");
+    lower("1.0-rc1", "1.0-SNAPSHOT");
+    lower("1.0", "1.0-sp1");
+    lower("1.0.1", "1.1");
+  }
+
+  @Test
+  public void qualifiersOrderTheWayMavenOrdersThem() {
+    lower("1.0-rc9", "1.0-rc10");
+    lower("1.0-beta-2", "1.0-beta-10");
+    // a is only short for alpha when a number follows it
+    lower("1.0a1", "1.0");
+    lower("1.0", "1.0a");
+    assertThat(ParsedVersion.parse("1.0").compareTo(ParsedVersion.parse("1"))).isEqualTo(0);
+    assertThat(ParsedVersion.parse("1.0.FINAL").compareTo(ParsedVersion.parse("1.0"))).isEqualTo(0);
+  }
+
+  private void lower(String lower, String higher) {
+    assertThat(ParsedVersion.parse(lower).compareTo(ParsedVersion.parse(higher))).isLessThan(0);
+    assertThat(ParsedVersion.parse(higher).compareTo(ParsedVersion.parse(lower))).isGreaterThan(0);
+  }
+
+  @Test
+  public void sameMajor() {
+    assertThat(ParsedVersion.parse("1.1").sameMajor(ParsedVersion.parse("1.11"))).isTrue();
+    assertThat(ParsedVersion.parse("1.1").sameMajor(ParsedVersion.parse("11.1"))).isFalse();
+  }
+}
@@ -0,0 +1,79 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.util.Arrays;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.junit.Test;
+
+public class RangeNarrowingParticipantTest {
+
+  @Test
+  public void narrowInMemory() {
+    MavenProject api = module("api");
+    MavenProject implementation = module("implementation");
+    Dependency coercion = dependency(implementation, "sticky-coercion", "[2.1,3)");
+    Dependency reflector = dependency(implementation, "sticky-reflector", "[1.4,)");
+    Dependency fixed = dependency(implementation, "sticky-fixed", "[1.4]");
+    Dependency onApi = dependency(implementation, "api", "[1.0,2)");
+
+    int narrowed = new RangeNarrowingParticipant(null)
+      .narrow(Arrays.asList(api, implementation), resolver("2.1", "2.6", "2.7-SNAPSHOT"));
+
+    assertThat(narrowed).isEqualTo(2);
+    assertThat(coercion.getVersion()).isEqualTo("[2.6,3)");
+    assertThat(reflector.getVersion()).isEqualTo("[2.6,)");
+    assertThat(fixed.getVersion()).isEqualTo("[1.4]");
+    assertThat(onApi.getVersion()).isEqualTo("[1.0,2)");
+  }
+
+  @Test
+  public void nothingFoundIsLeftAlone() {
+    MavenProject implementation = module("implementation");
+    Dependency coercion = dependency(implementation, "sticky-coercion", "[2.1,3)");
+
+    assertThat(new RangeNarrowingParticipant(null).narrow(Arrays.asList(implementation), resolver())).isEqualTo(0);
+    assertThat(coercion.getVersion()).isEqualTo("[2.1,3)");
+  }
+
+  private RangeResolver resolver(String... versions) {
+    return new RangeResolver(null, new DefaultRepositorySystemSession(), 2) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        VersionRangeResult result = new VersionRangeResult(request);
+        try {
+          for (String version : versions)
+            result.addVersion(new GenericVersionScheme().parseVersion(version));
+        }
+        catch (InvalidVersionSpecificationException e) {
+          throw new RuntimeException(e);
+        }
+        return result;
+      }
+    };
+  }
+
+  private MavenProject module(String artifactId) {
+    MavenProject module = new MavenProject();
+    module.setGroupId("net.stickycode");
+    module.setArtifactId(artifactId);
+    return module;
+  }
+
+  private Dependency dependency(MavenProject module, String artifactId, String version) {
+    Dependency dependency = new Dependency();
+    dependency.setGroupId("net.stickycode");
+    dependency.setArtifactId(artifactId);
+    dependency.setVersion(version);
+    module.getDependencies().add(dependency);
+    return dependency;
+  }
+}
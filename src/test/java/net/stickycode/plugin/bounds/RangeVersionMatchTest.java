@@ -15,38 +15,36 @@ public class RangeVersionMatchTest {
 
   @Test
   public void matchVersionRange() {
-    RangeVersionMatch mojo = new RangeVersionMatch("");
-    assertThat(mojo.matchVersionRange("[1.0,2)").matches()).isTrue();
-    assertThat(mojo.matchVersionRange("[1.0]").matches()).isFalse();
-    assertThat(mojo.matchVersionRange("[1]").matches()).isFalse();
-    assertThat(mojo.matchVersionRange("[1.2.3]").matches()).isFalse();
-    assertThat(mojo.matchVersionRange("1.0,2").matches()).isFalse();
-    assertThat(mojo.matchVersionRange("[1.0,2]").matches()).isFalse();
-    assertThat(mojo.matchVersionRange("[1.0,2.0)").matches()).isTrue();
-    assertThat(mojo.matchVersionRange("[1.0,)").matches()).isTrue();
-    assertThat(mojo.matchVersionRange("[1.0,2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersionRange("[1.0.4,2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersionRange("[1.0.4, 2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersionRange("[1.0.4 , 2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersionRange("[1.0.4 ,2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersionRange("[1.0.4-SNAPSHOT,2.3.4-SNAPSHOT)").matches()).isTrue();
+    assertThat(halfOpen("[1.0,2)")).isTrue();
+    assertThat(halfOpen("[1.0]")).isFalse();
+    assertThat(halfOpen("[1]")).isFalse();
+    assertThat(halfOpen("[1.2.3]")).isFalse();
+    assertThat(halfOpen("1.0,2")).isFalse();
+    assertThat(halfOpen("[1.0,2]")).isFalse();
+    assertThat(halfOpen("[1.0,2.0)")).isTrue();
+    assertThat(halfOpen("[1.0,)")).isTrue();
+    assertThat(halfOpen("[1.0,2.3.4)")).isTrue();
+    assertThat(halfOpen("[1.0.4,2.3.4)")).isTrue();
+    assertThat(halfOpen("[1.0.4, 2.3.4)")).isTrue();
+    assertThat(halfOpen("[1.0.4 , 2.3.4)")).isTrue();
+    assertThat(halfOpen("[1.0.4 ,2.3.4)")).isTrue();
+    assertThat(halfOpen("[1.0.4-SNAPSHOT,2.3.4-SNAPSHOT)")).isTrue();
   }
 
   @Test
   public void matchFixedVersion() {
-    RangeVersionMatch mojo = new RangeVersionMatch("");
-    assertThat(mojo.matchFixedVersion("[1]").matches()).isTrue();
-    assertThat(mojo.matchFixedVersion("[1.0]").matches()).isTrue();
-    assertThat(mojo.matchFixedVersion("[1.0.4]").matches()).isTrue();
-    assertThat(mojo.matchFixedVersion("[1.0.4-SNAPSHOT]").matches()).isTrue();
-    assertThat(mojo.matchFixedVersion("1.0,2").matches()).isFalse();
-    assertThat(mojo.matchFixedVersion("[1.0,2]").matches()).isFalse();
-    assertThat(mojo.matchFixedVersion("[1.0,2)").matches()).isFalse();
-    assertThat(mojo.matchFixedVersion("[1.0,2.0)").matches()).isFalse();
-    assertThat(mojo.matchFixedVersion("[1.0.4, 2.3.4)").matches()).isFalse();
-    assertThat(mojo.matchFixedVersion("[1.0.4 , 2.3.4)").matches()).isFalse();
-    assertThat(mojo.matchFixedVersion("[1.0.4 ,2.3.4)").matches()).isFalse();
-    assertThat(mojo.matchFixedVersion("[1.0.4-SNAPSHOT,2.3.4-SNAPSHOT)").matches()).isFalse();
+    assertThat(fixed("[1]")).isTrue();
+    assertThat(fixed("[1.0]")).isTrue();
+    assertThat(fixed("[1.0.4]")).isTrue();
+    assertThat(fixed("[1.0.4-SNAPSHOT]")).isTrue();
+    assertThat(fixed("1.0,2")).isFalse();
+    assertThat(fixed("[1.0,2]")).isFalse();
+    assertThat(fixed("[1.0,2)")).isFalse();
+    assertThat(fixed("[1.0,2.0)")).isFalse();
+    assertThat(fixed("[1.0.4, 2.3.4)")).isFalse();
+    assertThat(fixed("[1.0.4 , 2.3.4)")).isFalse();
+    assertThat(fixed("[1.0.4 ,2.3.4)")).isFalse();
+    assertThat(fixed("[1.0.4-SNAPSHOT,2.3.4-SNAPSHOT)")).isFalse();
   }
 
   @Test
@@ -69,6 +67,14 @@ public class RangeVersionMatchTest {
     checkSearchRange("[1.0.4-SNAPSHOT,2.3.4-SNAPSHOT)", "[1.0.4-SNAPSHOT,)");
   }
 
+  private boolean halfOpen(String version) {
+    return VersionRange.parse(version).isHalfOpen();
+  }
+
+  private boolean fixed(String version) {
+    return VersionRange.parse(version).isFixed();
+  }
+
   private void checkSearchRange(String version, String expected) {
     assertThat(new RangeVersionMatch(version).getSearchRange()).isEqualTo(expected);
   }
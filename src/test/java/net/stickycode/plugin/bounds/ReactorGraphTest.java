@@ -0,0 +1,61 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+public class ReactorGraphTest {
+
+  @Test
+  public void upstreamFirst() {
+    MavenProject api = module("api");
+    MavenProject implementation = module("implementation", "api", "[1.0,2)");
+    MavenProject application = module("application", "implementation", "[3.0,4)");
+
+    List<MavenProject> sorted = ReactorGraph.sort(Arrays.asList(application, implementation, api));
+    assertThat(sorted.get(0)).isSameAs(api);
+    assertThat(sorted.get(1)).isSameAs(implementation);
+    assertThat(sorted.get(2)).isSameAs(application);
+  }
+
+  @Test
+  public void unrelatedModulesKeepTheirOrder() {
+    MavenProject one = module("one", "commons-lang", "[2.0,3)");
+    MavenProject two = module("two");
+
+    List<MavenProject> sorted = ReactorGraph.sort(Arrays.asList(one, two));
+    assertThat(sorted.get(0)).isSameAs(one);
+    assertThat(sorted.get(1)).isSameAs(two);
+  }
+
+  @Test
+  public void cyclesAreLeftInOrder() {
+    MavenProject one = module("one", "two", "[1,2)");
+    MavenProject two = module("two", "one", "[1,2)");
+    MavenProject three = module("three");
+
+    List<MavenProject> sorted = ReactorGraph.sort(Arrays.asList(one, two, three));
+    assertThat(sorted.get(0)).isSameAs(three);
+    assertThat(sorted.get(1)).isSameAs(one);
+    assertThat(sorted.get(2)).isSameAs(two);
+  }
+
+  private MavenProject module(String artifactId, String... dependencies) {
+    MavenProject module = new MavenProject();
+    module.setGroupId("net.stickycode");
+    module.setArtifactId(artifactId);
+    for (int i = 0; i < dependencies.length; i += 2) {
+      Dependency dependency = new Dependency();
+      dependency.setGroupId("net.stickycode");
+      dependency.setArtifactId(dependencies[i]);
+      dependency.setVersion(dependencies[i + 1]);
+      module.getDependencies().add(dependency);
+    }
+    return module;
+  }
+}
@@ -0,0 +1,31 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class ReactorSummaryTest {
+
+  @Test
+  public void nothingChanged() {
+    ReactorSummary summary = new ReactorSummary();
+    summary.add("api", Collections.emptyList());
+    assertThat(summary.changedModules()).isEqualTo(0);
+    assertThat(summary.toString()).contains("Changed 0 of 1 modules");
+    assertThat(summary.toString()).contains("  api           0  -");
+  }
+
+  @Test
+  public void eachChangeOnItsOwnLine() {
+    ReactorSummary summary = new ReactorSummary();
+    summary.add("api", Collections.emptyList());
+    summary.add("implementation", Arrays.asList("sticky-coercion [3.1,4) -> [3.6,4)", "version 2.1 -> 3.1"));
+    assertThat(summary.changedModules()).isEqualTo(1);
+    assertThat(summary.toString()).contains("Changed 1 of 2 modules");
+    assertThat(summary.toString()).contains("  implementation        2  sticky-coercion [3.1,4) -> [3.6,4)");
+    assertThat(summary.toString()).contains("                           version 2.1 -> 3.1");
+  }
+}
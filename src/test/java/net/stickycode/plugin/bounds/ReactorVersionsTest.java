@@ -0,0 +1,91 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.WorkspaceReader;
+import org.eclipse.aether.repository.WorkspaceRepository;
+import org.junit.Test;
+
+public class ReactorVersionsTest {
+
+  @Test
+  public void declaredVersionsInRange() {
+    ReactorVersions versions = ReactorVersions.declared(Arrays.asList(module("api", "1.3")), false);
+    assertThat(versions.version(artifact("api", "[1.0,2)"))).isEqualTo("1.3");
+    assertThat(versions.version(artifact("api", "[1.4,2)"))).isNull();
+    assertThat(versions.version(artifact("implementation", "[1.0,2)"))).isNull();
+  }
+
+  @Test
+  public void snapshotsOnlyCountWhenAsked() {
+    List<MavenProject> reactor = Arrays.asList(module("api", "1.4-SNAPSHOT"));
+    assertThat(ReactorVersions.declared(reactor, false).version(artifact("api", "[1.0,2)"))).isNull();
+    assertThat(ReactorVersions.declared(reactor, true).version(artifact("api", "[1.0,2)"))).isEqualTo("1.4-SNAPSHOT");
+  }
+
+  @Test
+  public void bumpedVersionsAlwaysCount() {
+    MavenProject api = module("api", "1.4-SNAPSHOT");
+    ReactorVersions versions = ReactorVersions.declared(Arrays.asList(api), false);
+    versions.put(api, "2.1-SNAPSHOT");
+    assertThat(versions.version(artifact("api", "[1.0,)"))).isEqualTo("2.1-SNAPSHOT");
+    assertThat(versions.version(artifact("api", "[1.0,2)"))).isNull();
+  }
+
+  @Test
+  public void highestOfTheWorkspace() {
+    ReactorVersions versions = ReactorVersions.declared(Arrays.asList(module("api", "1.3")), false)
+      .withWorkspace(workspace("2.1", "2.4", "2.5-SNAPSHOT", "3.0"));
+    assertThat(versions.version(artifact("implementation", "[2.0,3)"))).isEqualTo("2.4");
+    assertThat(versions.version(artifact("implementation", "[4.0,5)"))).isNull();
+  }
+
+  @Test
+  public void pendingModulesAreNotAnsweredByTheWorkspace() {
+    List<MavenProject> reactor = Arrays.asList(module("implementation", "2.1-SNAPSHOT"));
+    ReactorVersions versions = ReactorVersions.declared(reactor, false)
+      .withWorkspace(workspace("2.1"))
+      .cascade(reactor);
+    assertThat(versions.isPending(artifact("implementation", "[2.0,3)"))).isTrue();
+    assertThat(versions.version(artifact("implementation", "[2.0,3)"))).isNull();
+  }
+
+  private MavenProject module(String artifactId, String version) {
+    MavenProject module = new MavenProject();
+    module.setGroupId("net.stickycode");
+    module.setArtifactId(artifactId);
+    module.setVersion(version);
+    return module;
+  }
+
+  private Artifact artifact(String artifactId, String range) {
+    return new DefaultArtifact("net.stickycode", artifactId, "jar", range);
+  }
+
+  private WorkspaceReader workspace(String... versions) {
+    return new WorkspaceReader() {
+
+      @Override
+      public WorkspaceRepository getRepository() {
+        return new WorkspaceRepository();
+      }
+
+      @Override
+      public File findArtifact(Artifact artifact) {
+        return null;
+      }
+
+      @Override
+      public List<String> findVersions(Artifact artifact) {
+        return Arrays.asList(versions);
+      }
+    };
+  }
+}
@@ -0,0 +1,138 @@
+package net.stickycode.plugin.bounds;
+
+import static net.stickycode.plugin.bounds.ResolverFixtures.found;
+import static net.stickycode.plugin.bounds.ResolverFixtures.metadata;
+import static net.stickycode.plugin.bounds.ResolverFixtures.repository;
+import static net.stickycode.plugin.bounds.ResolverFixtures.sleep;
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataTransferException;
+import org.junit.Test;
+
+public class RepositoryGuardTest {
+
+  private final RemoteRepository central = repository("central");
+
+  private final RemoteRepository nexus = repository("nexus");
+
+  private final List<RemoteRepository> repositories = Arrays.asList(nexus, central);
+
+  @Test
+  public void aRepositoryThatKeepsFailingIsLeftOut() {
+    List<List<RemoteRepository>> asked = Collections.synchronizedList(new ArrayList<>());
+    RangeResolver resolver = new RangeResolver(null, new DefaultRepositorySystemSession(), 4) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        asked.add(request.getRepositories());
+        return failed(nexus);
+      }
+    }.withGuard(guard(Duration.ZERO, 2, null));
+
+    resolver.resolve(request("sticky-coercion"));
+    resolver.resolve(request("sticky-configured"));
+    VersionRangeResult result = resolver.resolve(request("sticky-stereotype"));
+
+    assertThat(asked.get(1).size()).isEqualTo(2);
+    assertThat(asked.get(2).size()).isEqualTo(1);
+    assertThat(asked.get(2).get(0)).isSameAs(central);
+    assertThat(resolver.getGuard().summary()).contains("nexus: left out after failing");
+    // what nexus might have had is missing so the result is not clean
+    assertThat(ResolutionCache.isClean(result)).isFalse();
+    assertThat(result.getExceptions().get(result.getExceptions().size() - 1).getMessage())
+      .contains("Left out after 2 failures in a row");
+  }
+
+  @Test
+  public void aRepositoryThatMissesItsDeadlineIsReportedAndTheRestAreKept() {
+    RangeResolver resolver = new RangeResolver(null, new DefaultRepositorySystemSession(), 4) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        if (request.getRepositories().get(0) == nexus)
+          sleep(5000);
+        return found(request.getRepositories().get(0), "1.1");
+      }
+    }.withGuard(guard(Duration.ofMillis(200), 5, null));
+
+    VersionRangeResult result = resolver.resolve(request("sticky-coercion"));
+    assertThat(result.getVersions().toString()).isEqualTo("[1.1]");
+    assertThat(result.getRepository(result.getVersions().get(0))).isSameAs(central);
+    assertThat(result.getExceptions().size()).isEqualTo(1);
+    assertThat(result.getExceptions().get(0).getMessage()).contains("Timed out after 200ms");
+    assertThat(resolver.getGuard().summary()).contains("nexus: available, 1 timed out");
+  }
+
+  @Test
+  public void aSlowRepositoryIsRacedAgainstItsMirror() {
+    RepositoryGuard guard = guard(Duration.ZERO, 5,
+      Collections.singletonMap("nexus", "https://mirror.example.com/maven2"));
+    for (int i = 0; i < 20; i++)
+      guard.record(Arrays.asList(nexus), found(nexus, "1.1"), 1_000_000);
+
+    RangeResolver resolver = new RangeResolver(null, new DefaultRepositorySystemSession(), 4) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        RemoteRepository repository = request.getRepositories().get(0);
+        if (repository == nexus)
+          sleep(5000);
+        return found(repository, repository == central ? "1.1" : "1.2");
+      }
+    }.withGuard(guard);
+
+    VersionRangeResult result = resolver.resolve(request("sticky-coercion"));
+    assertThat(result.getVersions().toString()).isEqualTo("[1.1, 1.2]");
+    assertThat(result.getRepository(result.getVersions().get(1))).isSameAs(nexus);
+    assertThat(guard.summary()).contains("nexus: available, 0 timed out, 1 hedged");
+    resolver.close();
+  }
+
+  @Test
+  public void theLatencyIsNotKnownUntilThereAreEnoughLookups() {
+    RepositoryGuard guard = guard(Duration.ZERO, 5, null);
+    for (int i = 1; i < 20; i++)
+      guard.record(Arrays.asList(nexus), found(nexus, "1.1"), i);
+    assertThat(guard.p95(nexus)).isEqualTo(0);
+
+    guard.record(Arrays.asList(nexus), found(nexus, "1.1"), 20);
+    assertThat(guard.p95(nexus)).isEqualTo(19);
+  }
+
+  @Test
+  public void whatAnotherRealmKnowsIsReplaced() {
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    session.getData().set(RepositoryGuard.class.getName(), new ConcurrentHashMap<String, Object>());
+
+    RepositoryGuard guard = RepositoryGuard.of(session, Duration.ZERO, 1, null);
+    guard.timedOut(nexus);
+    assertThat(RepositoryGuard.of(session, Duration.ZERO, 1, null).summary()).contains("nexus: left out after failing");
+  }
+
+  private RepositoryGuard guard(Duration timeout, int failures, Map<String, String> mirrors) {
+    return new RepositoryGuard(new ConcurrentHashMap<>(), timeout, failures, mirrors);
+  }
+
+  private VersionRangeRequest request(String artifactId) {
+    return new VersionRangeRequest(new DefaultArtifact("net.stickycode", artifactId, "jar", "[1,2)"), repositories, null);
+  }
+
+  private VersionRangeResult failed(RemoteRepository repository) {
+    VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+    result.addException(new MetadataTransferException(metadata(), repository, "Connection refused"));
+    return result;
+  }
+}
@@ -0,0 +1,137 @@
+package net.stickycode.plugin.bounds;
+
+import static net.stickycode.plugin.bounds.ResolverFixtures.found;
+import static net.stickycode.plugin.bounds.ResolverFixtures.metadata;
+import static net.stickycode.plugin.bounds.ResolverFixtures.repository;
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+import org.junit.Test;
+
+public class RepositoryLimitsTest {
+
+  private final RemoteRepository central = repository("central");
+
+  private final RemoteRepository nexus = repository("nexus");
+
+  private final List<RemoteRepository> repositories = Arrays.asList(nexus, central);
+
+  private final Consumer<String> ignored = change -> {};
+
+  @Test
+  public void throttlingHalvesTheLimitOfThatRepository() {
+    RepositoryLimits limits = new RepositoryLimits();
+    List<RepositoryLimits.Limit> acquired = limits.acquire(repositories, 8);
+
+    List<String> changes = new ArrayList<>();
+    assertThat(limits.release(acquired, throttled(nexus), 1000, 8, changes::add)).isTrue();
+    assertThat(acquired.get(0).toString()).startsWith("central: limit 4");
+    assertThat(acquired.get(1).toString()).startsWith("nexus: limit 2 (lowest 2, highest 4)");
+    assertThat(changes.toString()).isEqualTo("[Limit of nexus went from 4 to 2 after a lookup that was throttled in 0 ms]");
+  }
+
+  @Test
+  public void theLimitCreepsBackWhileLatencyIsFlat() {
+    RepositoryLimits limits = new RepositoryLimits();
+    RepositoryLimits.Limit limit = limits.acquire(Arrays.asList(nexus), 8).get(0);
+    limits.release(Arrays.asList(limit), throttled(nexus), 1000, 8, ignored);
+    assertThat(limit.getLimit()).isEqualTo(2);
+
+    // a little over one per limit's worth of lookups
+    for (int i = 0; i < 3; i++)
+      limits.release(limits.acquire(Arrays.asList(nexus), 8), found(null, "1.1"), 1000, 8, ignored);
+    assertThat(limit.getLimit()).isEqualTo(3);
+
+    limits.release(limits.acquire(Arrays.asList(nexus), 8), found(null, "1.1"), 5000, 8, ignored);
+    assertThat(limit.getLimit()).isEqualTo(3);
+  }
+
+  @Test
+  public void missingMetadataIsNotAnError() {
+    RepositoryLimits limits = new RepositoryLimits();
+    VersionRangeResult result = found(null, "1.1");
+    result.addException(new MetadataNotFoundException(metadata(), nexus));
+    List<RepositoryLimits.Limit> acquired = limits.acquire(Arrays.asList(nexus), 8);
+
+    assertThat(limits.release(acquired, result, 1000, 8, ignored)).isFalse();
+    assertThat(acquired.get(0).getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void throttlingIsFoundInTheCauses() {
+    assertThat(RepositoryLimits.isThrottled(new RuntimeException("wrapped",
+      new RuntimeException("status code: 429, reason phrase: Too Many Requests")))).isTrue();
+    assertThat(RepositoryLimits.isThrottled(new RuntimeException("Service Unavailable"))).isTrue();
+    assertThat(RepositoryLimits.isThrottled(new RuntimeException("status code: 404"))).isFalse();
+    assertThat(RepositoryLimits.isThrottled(new RuntimeException("version 1.4290"))).isFalse();
+  }
+
+  @Test
+  public void throttledLookupsAreTriedAgain() {
+    AtomicInteger lookups = new AtomicInteger();
+    RangeResolver resolver = new RangeResolver(null, new DefaultRepositorySystemSession(), 4) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        if (request.getRepositories().get(0) != nexus)
+          return new VersionRangeResult(request);
+
+        return lookups.incrementAndGet() == 1 ? throttled(nexus) : found(null, "1.1");
+      }
+    }.withLimits(new RepositoryLimits(), ignored);
+
+    VersionRangeRequest request = new VersionRangeRequest(
+      new DefaultArtifact("net.stickycode", "sticky-coercion", "jar", "[1,2)"), repositories, null);
+    assertThat(resolver.resolve(request).getVersions().toString()).isEqualTo("[1.1]");
+    assertThat(lookups.get()).isEqualTo(2);
+    assertThat(resolver.getLimits().summary()).contains("nexus: limit 2 (lowest 1, highest 2), 2 lookups, 1 throttled");
+    assertThat(resolver.getLimits().summary()).contains("central: limit 2 (lowest 2, highest 2), 1 lookups, 0 throttled");
+  }
+
+  @Test
+  public void aBusyRepositoryOnlyHoldsUpItself() throws Exception {
+    RepositoryLimits limits = new RepositoryLimits();
+    CountDownLatch centralAsked = new CountDownLatch(1);
+    RangeResolver resolver = new RangeResolver(null, new DefaultRepositorySystemSession(), 2) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        if (request.getRepositories().get(0) == central)
+          centralAsked.countDown();
+        return found(null, "1.1");
+      }
+    }.withLimits(limits, ignored);
+
+    // the only slot of nexus is taken so its lookup waits, central is asked anyway
+    List<RepositoryLimits.Limit> held = limits.acquire(Arrays.asList(nexus), 2);
+    VersionRangeRequest request = new VersionRangeRequest(
+      new DefaultArtifact("net.stickycode", "sticky-coercion", "jar", "[1,2)"), repositories, null);
+    resolver.prefetch(request);
+    assertThat(centralAsked.await(5, TimeUnit.SECONDS)).isTrue();
+
+    limits.release(held, found(null, "1.1"), 1000, 2, ignored);
+    assertThat(resolver.resolve(request).getVersions().toString()).isEqualTo("[1.1]");
+    resolver.close();
+  }
+
+  private VersionRangeResult throttled(RemoteRepository repository) {
+    VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+    result.addException(new MetadataTransferException(metadata(), repository,
+      "status code: 429, reason phrase: Too Many Requests"));
+    return result;
+  }
+}
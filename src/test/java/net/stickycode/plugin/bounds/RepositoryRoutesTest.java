@@ -0,0 +1,180 @@
+package net.stickycode.plugin.bounds;
+
+import static net.stickycode.plugin.bounds.ResolverFixtures.add;
+import static net.stickycode.plugin.bounds.ResolverFixtures.repository;
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.junit.Test;
+
+public class RepositoryRoutesTest {
+
+  private final RemoteRepository central = repository("central");
+
+  private final RemoteRepository sticky = repository("sticky");
+
+  private final List<RemoteRepository> repositories = Arrays.asList(central, sticky);
+
+  @Test
+  public void learnedRoutesCoverSubgroups() {
+    RepositoryRoutes routes = routes(file("subgroups"), at(0));
+    routes.learn("net.stickycode", result("net.stickycode", sticky, "1.1"));
+
+    assertThat(routes.route("net.stickycode", repositories).size()).isEqualTo(1);
+    assertThat(routes.route("net.stickycode.composite", repositories).get(0)).isEqualTo(sticky);
+    assertThat(routes.route("net.sticky", repositories)).isNull();
+    assertThat(routes.route("org.apache", repositories)).isNull();
+  }
+
+  @Test
+  public void expiredRoutesAreNotUsed() {
+    Path file = file("expired");
+    RepositoryRoutes learned = routes(file, at(0));
+    learned.learn("net.stickycode", result("net.stickycode", sticky, "1.1"));
+    learned.save();
+
+    assertThat(routes(file, at(59)).load().route("net.stickycode", repositories).get(0)).isEqualTo(sticky);
+    assertThat(routes(file, at(61)).load().route("net.stickycode", repositories)).isNull();
+  }
+
+  @Test
+  public void routesToUnknownRepositoriesAreNotUsed() {
+    RepositoryRoutes routes = routes(file("unknown"), at(0));
+    routes.learn("net.stickycode", result("net.stickycode", sticky, "1.1"));
+
+    assertThat(routes.route("net.stickycode", Arrays.asList(central))).isNull();
+  }
+
+  @Test
+  public void onlyTheRouteIsAskedUntilItHasNothing() {
+    RepositoryRoutes routes = routes(file("fallback"), at(0));
+    routes.learn("net.stickycode", result("net.stickycode", sticky, "1.1"));
+
+    List<Integer> asked = new ArrayList<>();
+    List<String> found = new ArrayList<>(Arrays.asList("1.2"));
+    RangeResolver resolver = new RangeResolver(null, new DefaultRepositorySystemSession(), 1) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        asked.add(request.getRepositories().size());
+        VersionRangeResult result = new VersionRangeResult(request);
+        for (String version : found)
+          add(result, request.getRepositories().get(request.getRepositories().size() - 1), version);
+        return result;
+      }
+    }.withRoutes(routes);
+
+    assertThat(resolver.resolve(request("[1,1.2]")).getVersions().toString()).isEqualTo("[1.2]");
+    found.clear();
+    assertThat(resolver.resolve(request("[1.2]")).getVersions().isEmpty()).isTrue();
+    assertThat(asked.toString()).isEqualTo("[1, 1, 2]");
+    assertThat(routes.route("net.stickycode", repositories)).isNull();
+  }
+
+  @Test
+  public void onlyTheRouteIsAskedForAnyRange() {
+    RepositoryRoutes routes = routes(file("any"), at(0));
+    routes.learn("net.stickycode", result("net.stickycode", sticky, "1.1"));
+
+    List<Integer> asked = new ArrayList<>();
+    RangeResolver resolver = new RangeResolver(null, new DefaultRepositorySystemSession(), 1) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        asked.add(request.getRepositories().size());
+        VersionRangeResult result = new VersionRangeResult(request);
+        for (RemoteRepository repository : Arrays.asList(sticky, central))
+          if (request.getRepositories().contains(repository))
+            add(result, repository, repository == sticky ? "1.2" : "1.3");
+        return result;
+      }
+    }.withRoutes(routes);
+
+    // central is off the route so its newer version is not seen until the route expires
+    assertThat(resolver.resolve(request("[1,2)")).getVersions().toString()).isEqualTo("[1.2]");
+    assertThat(resolver.resolve(request("[1.1,)")).getVersions().toString()).isEqualTo("[1.2]");
+    assertThat(asked.toString()).isEqualTo("[1, 1]");
+  }
+
+  @Test
+  public void aFailingRouteFallsBackToAllTheRepositories() {
+    RepositoryRoutes routes = routes(file("failing"), at(0));
+    routes.learn("net.stickycode", result("net.stickycode", sticky, "1.1"));
+
+    List<Integer> asked = new ArrayList<>();
+    RangeResolver resolver = new RangeResolver(null, new DefaultRepositorySystemSession(), 1) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        asked.add(request.getRepositories().size());
+        VersionRangeResult result = new VersionRangeResult(request);
+        if (request.getRepositories().size() == 1)
+          result.addException(new RuntimeException("sticky is down"));
+        else
+          add(result, sticky, "1.2");
+        add(result, central, "1.3");
+        return result;
+      }
+    }.withRoutes(routes);
+
+    assertThat(resolver.resolve(request("[1,2)")).getVersions().toString()).isEqualTo("[1.2, 1.3]");
+    assertThat(asked.toString()).isEqualTo("[1, 2]");
+    assertThat(routes.route("net.stickycode", repositories).size()).isEqualTo(2);
+  }
+
+  @Test
+  public void aCorruptFileIsIgnored() throws IOException {
+    Path file = file("corrupt");
+    Files.createDirectories(file.getParent());
+    Files.write(file, "net.stickycode = yesterday sticky\n".getBytes(StandardCharsets.ISO_8859_1));
+
+    assertThat(routes(file, at(0)).load().route("net.stickycode", repositories)).isNull();
+  }
+
+  private VersionRangeRequest request(String range) {
+    return new VersionRangeRequest(new DefaultArtifact("net.stickycode", "sticky-coercion", "jar", range), repositories, null);
+  }
+
+  private VersionRangeResult result(String groupId, RemoteRepository repository, String version) {
+    VersionRangeResult result = new VersionRangeResult(
+      new VersionRangeRequest(new DefaultArtifact(groupId, "any", "jar", "[1,)"), repositories, null));
+    add(result, repository, version);
+    return result;
+  }
+
+  private RepositoryRoutes routes(Path file, Clock clock) {
+    return new RepositoryRoutes(file, Duration.ofMinutes(60)).withClock(clock);
+  }
+
+  private Path file(String name) {
+    Path file = new File("target/routes/" + name + ".properties").toPath();
+    try {
+      Files.deleteIfExists(file);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return file;
+  }
+
+  private Clock at(int minutes) {
+    return Clock.fixed(Instant.ofEpochSecond(minutes * 60L), ZoneId.of("UTC"));
+  }
+}
@@ -0,0 +1,106 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.junit.Test;
+
+public class ResolutionCacheTest {
+
+  @Test
+  public void sharedBySession() {
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    assertThat(ResolutionCache.of(session)).isSameAs(ResolutionCache.of(session));
+    assertThat(ResolutionCache.of(new DefaultRepositorySystemSession())).isNotEqualTo(ResolutionCache.of(session));
+  }
+
+  @Test
+  public void hitsAndMisses() {
+    ResolutionCache cache = new ResolutionCache();
+    VersionRangeRequest request = request("[1,2)", repository(true));
+    assertThat(cache.get(ResolutionCache.key(request))).isNull();
+    cache.put(ResolutionCache.key(request), new VersionRangeResult(request));
+    assertThat(cache.get(ResolutionCache.key(request))).isNotNull();
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void failuresAreNotCached() {
+    ResolutionCache cache = new ResolutionCache();
+    VersionRangeRequest request = request("[1,2)", repository(true));
+    cache.put(ResolutionCache.key(request), new VersionRangeResult(request).addException(new RuntimeException("offline")));
+    assertThat(cache.get(ResolutionCache.key(request))).isNull();
+  }
+
+  @Test
+  public void concurrentLookupsAreCoalesced() throws Exception {
+    ResolutionCache cache = new ResolutionCache();
+    VersionRangeRequest request = request("[1,2)", repository(true));
+    String key = ResolutionCache.key(request);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger lookups = new AtomicInteger();
+
+    CompletableFuture<VersionRangeResult> first = CompletableFuture.supplyAsync(() -> cache.singleFlight(key, () -> {
+      lookups.incrementAndGet();
+      started.countDown();
+      await(release);
+      return new VersionRangeResult(request);
+    }));
+    await(started);
+
+    CompletableFuture<VersionRangeResult> second = CompletableFuture.supplyAsync(() -> cache.singleFlight(key, () -> {
+      lookups.incrementAndGet();
+      return new VersionRangeResult(request);
+    }));
+    while (cache.getCoalesced() == 0)
+      Thread.sleep(1);
+
+    release.countDown();
+    assertThat(second.get()).isSameAs(first.get());
+    assertThat(lookups.get()).isEqualTo(1);
+    assertThat(cache.get(key)).isSameAs(first.get());
+  }
+
+  private void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    }
+    catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void keys() {
+    assertThat(key("[1,2)", repository(true))).isEqualTo(key("[1,2)", repository(true)));
+    assertThat(key("[1,2)", repository(true))).isNotEqualTo(key("[1,3)", repository(true)));
+    assertThat(key("[1,2)", repository(true))).isNotEqualTo(key("[1,2)", repository(false)));
+  }
+
+  private String key(String range, RemoteRepository repository) {
+    return ResolutionCache.key(request(range, repository));
+  }
+
+  private VersionRangeRequest request(String range, RemoteRepository repository) {
+    return new VersionRangeRequest(new DefaultArtifact("net.stickycode", "sticky-coercion", "jar", range),
+      Collections.singletonList(repository), null);
+  }
+
+  private RemoteRepository repository(boolean snapshots) {
+    return new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2")
+      .setSnapshotPolicy(new RepositoryPolicy(snapshots, RepositoryPolicy.UPDATE_POLICY_DAILY, RepositoryPolicy.CHECKSUM_POLICY_WARN))
+      .build();
+  }
+}
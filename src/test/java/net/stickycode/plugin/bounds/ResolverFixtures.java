@@ -0,0 +1,65 @@
+package net.stickycode.plugin.bounds;
+
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+
+/**
+ * The repositories and results the resolver tests stub their lookups with
+ */
+final class ResolverFixtures {
+
+  private static final GenericVersionScheme SCHEME = new GenericVersionScheme();
+
+  private ResolverFixtures() {
+  }
+
+  static RemoteRepository repository(String id) {
+    return new RemoteRepository.Builder(id, "default", "https://" + id + ".example.com/maven2").build();
+  }
+
+  static Version version(String value) {
+    try {
+      return SCHEME.parseVersion(value);
+    }
+    catch (InvalidVersionSpecificationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * A result with the versions, credited to the repository when there is one
+   */
+  static VersionRangeResult found(RemoteRepository repository, String... versions) {
+    VersionRangeResult result = new VersionRangeResult(new VersionRangeRequest());
+    for (String value : versions)
+      add(result, repository, value);
+    return result;
+  }
+
+  static void add(VersionRangeResult result, RemoteRepository repository, String value) {
+    Version version = version(value);
+    result.addVersion(version);
+    if (repository != null)
+      result.setRepository(version, repository);
+  }
+
+  static Metadata metadata() {
+    return new DefaultMetadata("net.stickycode", "sticky-coercion", "maven-metadata.xml",
+      Metadata.Nature.RELEASE_OR_SNAPSHOT);
+  }
+
+  static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
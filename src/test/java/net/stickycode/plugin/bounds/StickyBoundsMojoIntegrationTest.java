@@ -2,48 +2,41 @@ package net.stickycode.plugin.bounds;
 
 import static org.assertj.core.api.StrictAssertions.assertThat;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
+import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.junit.Test;
 
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Node;
-import nu.xom.Nodes;
-import nu.xom.ParsingException;
-import nu.xom.Serializer;
-import nu.xom.ValidityException;
-import nu.xom.XPathContext;
-
 public class StickyBoundsMojoIntegrationTest {
 
   @Test
   public void matchVersionRanges() {
     StickyBoundsMojo mojo = new StickyBoundsMojo();
-    assertThat(mojo.matchVersion("1.0,2").matches()).isFalse();
-    assertThat(mojo.matchVersion("[1.0,2]").matches()).isFalse();
-    assertThat(mojo.matchVersion("[1.0,2)").matches()).isTrue();
-    assertThat(mojo.matchVersion("[1.0,2.0)").matches()).isTrue();
-    assertThat(mojo.matchVersion("[1.0,)").matches()).isTrue();
-    assertThat(mojo.matchVersion("[1.0,2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersion("[1.0.4,2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersion("[1.0.4, 2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersion("[1.0.4 , 2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersion("[1.0.4 ,2.3.4)").matches()).isTrue();
-    assertThat(mojo.matchVersion("[1.0.4-SNAPSHOT,2.3.4-SNAPSHOT)").matches()).isTrue();
+    assertThat(mojo.matchVersion("1.0,2").isHalfOpen()).isFalse();
+    assertThat(mojo.matchVersion("[1.0,2]").isHalfOpen()).isFalse();
+    assertThat(mojo.matchVersion("[1.0,2)").isHalfOpen()).isTrue();
+    assertThat(mojo.matchVersion("[1.0,2.0)").isHalfOpen()).isTrue();
+    assertThat(mojo.matchVersion("[1.0,)").isHalfOpen()).isTrue();
+    assertThat(mojo.matchVersion("[1.0,2.3.4)").isHalfOpen()).isTrue();
+    assertThat(mojo.matchVersion("[1.0.4,2.3.4)").isHalfOpen()).isTrue();
+    assertThat(mojo.matchVersion("[1.0.4, 2.3.4)").isHalfOpen()).isTrue();
+    assertThat(mojo.matchVersion("[1.0.4 , 2.3.4)").isHalfOpen()).isTrue();
+    assertThat(mojo.matchVersion("[1.0.4 ,2.3.4)").isHalfOpen()).isTrue();
+    assertThat(mojo.matchVersion("[1.0.4-SNAPSHOT,2.3.4-SNAPSHOT)").isHalfOpen()).isTrue();
   }
 
   @Test
   public void update()
-      throws ValidityException, ParsingException, IOException, MojoExecutionException {
-    Document pom = new Builder().build(new File(new File("src/it/update"), "pom.xml"));
+      throws IOException, MojoExecutionException {
+    PomDocument pom = PomDocument.load(new File(new File("src/it/update"), "pom.xml"));
     Artifact artifact = new DefaultArtifact(
       "net.stickycode",
       "sticky-coercion",
@@ -52,21 +45,33 @@ public class StickyBoundsMojoIntegrationTest {
       "[3.6,4)");
 
     new StickyBoundsMojo().updateDependency(pom, artifact, "[3.1,4)");
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-
-    Nodes versions = pom.query("//mvn:version", context);
-    assertThat(versions.size()).isEqualTo(3);
-    Nodes nodes = pom.query("//mvn:version[text()='[3.6,4)']", context);
-    assertThat(nodes.size()).isEqualTo(1);
-    Node node = nodes.get(0);
-    assertThat(node.getValue()).isEqualTo("[3.6,4)");
+
+    assertThat(count(pom, "<version>")).isEqualTo(3);
+    assertThat(count(pom, "<version>[3.6,4)</version>")).isEqualTo(1);
+  }
+
+  @Test
+  public void changesAreRecordedForTheSummary()
+      throws IOException, MojoExecutionException {
+    PomDocument pom = PomDocument.load(new File(new File("src/it/update"), "pom.xml"));
+    Artifact artifact = new DefaultArtifact(
+      "net.stickycode",
+      "sticky-coercion",
+      "jar",
+      "",
+      "[3.6,4)");
+
+    StickyBoundsMojo mojo = new StickyBoundsMojo();
+    mojo.updateDependency(pom, artifact, "[2.1,3)");
+
+    assertThat(mojo.takeChanges().get(0)).isEqualTo("sticky-coercion [2.1,3) -> [3.6,4)");
+    assertThat(mojo.takeChanges().isEmpty()).isTrue();
   }
 
   @Test
   public void updateWithClassifier()
-      throws ValidityException, ParsingException, IOException, MojoExecutionException {
-    Document pom = new Builder()
-      .build(new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("classifiers.xml"))));
+      throws IOException, MojoExecutionException {
+    PomDocument pom = resource("classifiers.xml");
     Artifact artifact = new DefaultArtifact(
       "net.stickycode",
       "sticky-coercion",
@@ -75,21 +80,15 @@ public class StickyBoundsMojoIntegrationTest {
       "[2.6,3)");
 
     new StickyBoundsMojo().updateDependency(pom, artifact, "[2.1,3)");
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-
-    Nodes versions = pom.query("//mvn:version", context);
-    assertThat(versions.size()).isEqualTo(4);
-    Nodes nodes = pom.query("//mvn:version[text()='[2.6,3)']", context);
-    assertThat(nodes.size()).isEqualTo(1);
-    Node node = nodes.get(0);
-    assertThat(node.getValue()).isEqualTo("[2.6,3)");
+
+    assertThat(count(pom, "<version>")).isEqualTo(4);
+    assertThat(count(pom, "<version>[2.6,3)</version>")).isEqualTo(1);
   }
 
   @Test
   public void updateTheClassifier()
-      throws ValidityException, ParsingException, IOException, MojoExecutionException {
-    Document pom = new Builder()
-      .build(new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("classifiers.xml"))));
+      throws IOException, MojoExecutionException {
+    PomDocument pom = resource("classifiers.xml");
     Artifact artifact = new DefaultArtifact(
       "net.stickycode",
       "sticky-coercion",
@@ -98,21 +97,112 @@ public class StickyBoundsMojoIntegrationTest {
       "[2.6,3)");
 
     new StickyBoundsMojo().updateDependency(pom, artifact, "[2.1,3)");
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-
-    Nodes versions = pom.query("//mvn:version", context);
-    assertThat(versions.size()).isEqualTo(4);
-    Nodes nodes = pom.query("//mvn:version[text()='[2.6,3)']", context);
-    assertThat(nodes.size()).isEqualTo(1);
-    Node node = nodes.get(0);
-    assertThat(node.getValue()).isEqualTo("[2.6,3)");
+
+    assertThat(count(pom, "<version>")).isEqualTo(4);
+    assertThat(count(pom, "<version>[2.6,3)</version>")).isEqualTo(1);
+  }
+
+  @Test
+  public void updateAfterAnotherClassifier()
+      throws IOException, MojoExecutionException {
+    PomDocument pom = new PomDocument((
+      "<project xmlns='http://maven.apache.org/POM/4.0.0'><dependencies>"
+        + "<dependency><groupId>net.stickycode</groupId><artifactId>sticky-coercion</artifactId>"
+        + "<classifier>test-jar</classifier><version>[2.1,3)</version></dependency>"
+        + "<dependency><groupId>net.stickycode</groupId><artifactId>sticky-coercion</artifactId>"
+        + "<version>[2.1,3)</version></dependency>"
+        + "</dependencies></project>").getBytes(StandardCharsets.UTF_8));
+    Artifact artifact = new DefaultArtifact(
+      "net.stickycode",
+      "sticky-coercion",
+      "",
+      "jar",
+      "[2.6,3)");
+
+    new StickyBoundsMojo().updateDependency(pom, artifact, "[2.1,3)");
+
+    assertThat(count(pom, "<version>[2.6,3)</version>")).isEqualTo(1);
+    assertThat(pom.toString()).endsWith("<version>[2.6,3)</version></dependency></dependencies></project>");
   }
 
   @Test
-  public void writeNamespacesUnchanged()
-      throws ValidityException, ParsingException, IOException {
-    Document pom = new Builder().build(new File(new File("src/it/update"), "pom.xml"));
-    Serializer s = new StickySerializer(new FileOutputStream(new File("target/tmp.xml")), "UTF-8");
-    s.write(pom);
+  public void writeNamespacesUnchanged() throws IOException {
+    File file = new File(new File("src/it/update"), "pom.xml");
+    File written = new File("target/tmp.xml");
+    written.getParentFile().mkdirs();
+    PomDocument.load(file).write(written);
+    assertThat(new String(Files.readAllBytes(written.toPath()), StandardCharsets.UTF_8))
+      .isEqualTo(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void onlyTheVersionChanges() throws IOException, MojoExecutionException {
+    File file = new File(new File("src/it/update"), "pom.xml");
+    PomDocument pom = PomDocument.load(file);
+    Artifact artifact = new DefaultArtifact(
+      "net.stickycode",
+      "sticky-coercion",
+      "jar",
+      "",
+      "[3.6,4)");
+
+    new StickyBoundsMojo().updateDependency(pom, artifact, "[2.1,3)");
+    String original = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    assertThat(pom.toString()).isEqualTo(original.replace("<version>[2.1,3)</version>", "<version>[3.6,4)</version>"));
+  }
+
+  @Test
+  public void existingLineSeparatorsAreKept() {
+    PomDocument pom = new PomDocument("<project>\r\n<version/>\r\n</project>".getBytes(StandardCharsets.UTF_8));
+    PomIndex.build(pom, null).projectVersion().setValue("1.0");
+    assertThat(pom.toString()).isEqualTo("<project>\r\n<version>1.0</version>\r\n</project>");
+  }
+
+  @Test
+  public void entitiesAndComments() {
+    PomDocument pom = new PomDocument(
+      "<?xml version='1.0' encoding='ISO-8859-1'?><project><!-- <version>x</version> --><version><!-- c -->1&amp;2</version></project>"
+        .getBytes(StandardCharsets.ISO_8859_1));
+    PomDocument.TextNode version = PomIndex.build(pom, null).projectVersion();
+    assertThat(version.getValue()).isEqualTo("1&2");
+    version.setValue("3<4");
+    assertThat(pom.toString()).endsWith("<!-- <version>x</version> --><version>3&lt;4</version></project>");
+  }
+
+  @Test
+  public void onlyWhatIsDeclaredInThePom() throws IOException {
+    StickyBoundsMojo mojo = new StickyBoundsMojo();
+    mojo.project = new MavenProject();
+    mojo.project.getModel().addDependency(dependency("sticky-coercion", "[2.1,3)"));
+    mojo.project.getModel().addDependency(dependency("sticky-inherited", "[1.1,2)"));
+    mojo.project.getProperties().setProperty("sticky-inherited.version", "[1.1,2)");
+
+    PomIndex index = PomIndex.build(PomDocument.load(new File(new File("src/it/update"), "pom.xml")), mojo.project);
+    assertThat(mojo.declaredDependencies(index).size()).isEqualTo(1);
+    assertThat(mojo.declaredDependencies(index).get(0).getArtifactId()).isEqualTo("sticky-coercion");
+    assertThat(mojo.declaredManagedDependencies(index).isEmpty()).isTrue();
+    assertThat(mojo.declaredVersionProperties(index).isEmpty()).isTrue();
+  }
+
+  private Dependency dependency(String artifactId, String version) {
+    Dependency dependency = new Dependency();
+    dependency.setGroupId("net.stickycode");
+    dependency.setArtifactId(artifactId);
+    dependency.setVersion(version);
+    return dependency;
+  }
+
+  private PomDocument resource(String name) throws IOException {
+    try (InputStream in = getClass().getResourceAsStream(name)) {
+      return new PomDocument(in.readAllBytes());
+    }
+  }
+
+  private int count(PomDocument pom, String fragment) {
+    String text = pom.toString();
+    int count = 0;
+    for (int i = text.indexOf(fragment); i >= 0; i = text.indexOf(fragment, i + 1))
+      count++;
+    return count;
   }
 }
@@ -2,28 +2,20 @@ package net.stickycode.plugin.bounds;
 
 import static org.assertj.core.api.StrictAssertions.assertThat;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.version.Version;
 import org.junit.Test;
 
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Node;
-import nu.xom.Nodes;
-import nu.xom.ParsingException;
-import nu.xom.Serializer;
-import nu.xom.ValidityException;
-import nu.xom.XPathContext;
-
 public class StickyBoundsUpgradeMojoIntegrationTest {
 
   @Test
@@ -57,28 +49,82 @@ public class StickyBoundsUpgradeMojoIntegrationTest {
   }
   
   @Test
-  public void bump()
-      throws ValidityException, ParsingException, IOException, MojoExecutionException {
-    Document pom = new Builder().build(new File(new File("src/it/update"), "pom.xml"));
+  public void reactorVersionsAreUsedWithoutAResolver() throws MojoExecutionException {
+    MavenProject module = new MavenProject();
+    module.setGroupId("net.stickycode");
+    module.setArtifactId("sticky-coercion");
+    ReactorVersions reactorVersions = new ReactorVersions();
+    reactorVersions.put(module, "3.1-SNAPSHOT");
 
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
+    StickyBoundsUpgradeMojo mojo = new StickyBoundsUpgradeMojo();
+    mojo.use(reactorVersions);
 
-    Nodes versions = pom.query("/mvn:project/mvn:version", context);
-    assertThat(versions.size()).isEqualTo(1);
-    
-    assertThat(pom.query("/mvn:project/mvn:version[text()='1.1-SNAPSHOT']", context).size()).isEqualTo(1);
-    assertThat(pom.query("/mvn:project/mvn:version[text()='2.1-SNAPSHOT']", context).size()).isEqualTo(0);
+    Dependency dependency = new Dependency();
+    dependency.setGroupId("net.stickycode");
+    dependency.setArtifactId("sticky-coercion");
+    assertThat(mojo.resolveLatestVersionRange(dependency, "[2.1,3)").getVersion()).isEqualTo("[3.1-SNAPSHOT,4)");
+  }
+
+  @Test
+  public void bump()
+      throws IOException, MojoExecutionException {
+    PomDocument pom = PomDocument.load(new File(new File("src/it/update"), "pom.xml"));
+
+    assertThat(PomIndex.build(pom, null).projectVersion().getValue()).isEqualTo("1.1-SNAPSHOT");
+    assertThat(count(pom, "<version>1.1-SNAPSHOT</version>")).isEqualTo(1);
+    assertThat(count(pom, "<version>2.1-SNAPSHOT</version>")).isEqualTo(0);
     
     new StickyBoundsUpgradeMojo().bumpMajorVersion(pom);
     
-    assertThat(pom.query("/mvn:project/mvn:version[text()='1.1-SNAPSHOT']", context).size()).isEqualTo(0);
-    assertThat(pom.query("/mvn:project/mvn:version[text()='2.1-SNAPSHOT']", context).size()).isEqualTo(1);
+    assertThat(count(pom, "<version>1.1-SNAPSHOT</version>")).isEqualTo(0);
+    assertThat(count(pom, "<version>2.1-SNAPSHOT</version>")).isEqualTo(1);
   }
   
+  @Test
+  public void bumpOnlyRaisesTheMajorVersion()
+      throws IOException, MojoExecutionException {
+    File file = Files.createTempDirectory("bounds").resolve("pom.xml").toFile();
+    String text = new String(Files.readAllBytes(new File(new File("src/it/update"), "pom.xml").toPath()), StandardCharsets.UTF_8);
+    Files.write(file.toPath(), text.replace("<version>1.1-SNAPSHOT</version>", "<version>3.7.2-SNAPSHOT</version>")
+      .getBytes(StandardCharsets.UTF_8));
+    PomDocument pom = PomDocument.load(file);
+
+    new StickyBoundsUpgradeMojo().bumpMajorVersion(pom);
+
+    assertThat(count(pom, "<version>4.7.2-SNAPSHOT</version>")).isEqualTo(1);
+  }
+
+  @Test
+  public void aCascadedBumpResetsTheMinorVersion() {
+    assertThat(StickyBoundsUpgradeAllMojo.cascadedVersion("3.7-SNAPSHOT")).isEqualTo("4.1-SNAPSHOT");
+    assertThat(StickyBoundsUpgradeAllMojo.cascadedVersion("1.2.3")).isEqualTo("2.1");
+  }
+
+  @Test
+  public void cascadeGivesDownstreamTheReleaseOfTheBumpedVersion()
+      throws IOException, MojoExecutionException {
+    PomDocument upstream = PomDocument.load(new File(new File("src/it/update"), "pom.xml"));
+    MavenProject module = new MavenProject();
+    module.setGroupId("net.stickycode.plugins.it");
+    module.setArtifactId("sticky-bounds-plugin-reflector");
+    module.setVersion("1.1-SNAPSHOT");
+
+    ReactorVersions reactorVersions = new ReactorVersions();
+    StickyBoundsUpgradeAllMojo mojo = new StickyBoundsUpgradeAllMojo();
+    mojo.use(reactorVersions);
+    mojo.bumpMajorVersion(upstream);
+    mojo.cascade(reactorVersions, module, upstream);
+
+    Dependency dependency = new Dependency();
+    dependency.setGroupId("net.stickycode.plugins.it");
+    dependency.setArtifactId("sticky-bounds-plugin-reflector");
+    assertThat(mojo.resolveLatestVersionRange(dependency, "[1.1,2)").getVersion()).isEqualTo("[2.1,3)");
+  }
+
   @Test
   public void upgrade()
-      throws ValidityException, ParsingException, IOException, MojoExecutionException {
-    Document pom = new Builder().build(new File(new File("src/it/upgrade"), "pom.xml"));
+      throws IOException, MojoExecutionException {
+    PomDocument pom = PomDocument.load(new File(new File("src/it/upgrade"), "pom.xml"));
     Artifact artifact = new DefaultArtifact(
       "net.stickycode",
       "sticky-coercion",
@@ -87,20 +133,15 @@ public class StickyBoundsUpgradeMojoIntegrationTest {
       "[3.6,4)");
 
     new StickyBoundsUpgradeMojo().updateDependency(pom, artifact, "[3.1,4)");
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-
-    Nodes versions = pom.query("//mvn:version", context);
-    assertThat(versions.size()).isEqualTo(3);
-    Nodes nodes = pom.query("//mvn:version[text()='[3.6,4)']", context);
-    assertThat(nodes.size()).isEqualTo(1);
-    Node node = nodes.get(0);
-    assertThat(node.getValue()).isEqualTo("[3.6,4)");
+
+    assertThat(count(pom, "<version>")).isEqualTo(3);
+    assertThat(count(pom, "<version>[3.6,4)</version>")).isEqualTo(1);
   }
   
   @Test
   public void upgradeFixed()
-      throws ValidityException, ParsingException, IOException, MojoExecutionException {
-    Document pom = new Builder().build(new File(new File("src/it/upgrade-fixed"), "pom.xml"));
+      throws IOException, MojoExecutionException {
+    PomDocument pom = PomDocument.load(new File(new File("src/it/upgrade-fixed"), "pom.xml"));
     Artifact artifact = new DefaultArtifact(
       "net.stickycode",
       "sticky-coercion",
@@ -109,21 +150,15 @@ public class StickyBoundsUpgradeMojoIntegrationTest {
         "[3.6]");
     
     new StickyBoundsUpgradeMojo().updateDependency(pom, artifact, "[2.1]");
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-    
-    Nodes versions = pom.query("//mvn:version", context);
-    assertThat(versions.size()).isEqualTo(3);
-    Nodes nodes = pom.query("//mvn:version[text()='[3.6]']", context);
-    assertThat(nodes.size()).isEqualTo(1);
-    Node node = nodes.get(0);
-    assertThat(node.getValue()).isEqualTo("[3.6]");
+
+    assertThat(count(pom, "<version>")).isEqualTo(3);
+    assertThat(count(pom, "<version>[3.6]</version>")).isEqualTo(1);
   }
 
   @Test
   public void updateWithClassifier()
-      throws ValidityException, ParsingException, IOException, MojoExecutionException {
-    Document pom = new Builder()
-      .build(new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("classifiers.xml"))));
+      throws IOException, MojoExecutionException {
+    PomDocument pom = resource("classifiers.xml");
     Artifact artifact = new DefaultArtifact(
       "net.stickycode",
       "sticky-coercion",
@@ -132,21 +167,15 @@ public class StickyBoundsUpgradeMojoIntegrationTest {
       "[2.6,3)");
 
     new StickyBoundsUpgradeMojo().updateDependency(pom, artifact, "[2.1,3)");
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-
-    Nodes versions = pom.query("//mvn:version", context);
-    assertThat(versions.size()).isEqualTo(4);
-    Nodes nodes = pom.query("//mvn:version[text()='[2.6,3)']", context);
-    assertThat(nodes.size()).isEqualTo(1);
-    Node node = nodes.get(0);
-    assertThat(node.getValue()).isEqualTo("[2.6,3)");
+
+    assertThat(count(pom, "<version>")).isEqualTo(4);
+    assertThat(count(pom, "<version>[2.6,3)</version>")).isEqualTo(1);
   }
 
   @Test
   public void updateTheClassifier()
-      throws ValidityException, ParsingException, IOException, MojoExecutionException {
-    Document pom = new Builder()
-      .build(new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("classifiers.xml"))));
+      throws IOException, MojoExecutionException {
+    PomDocument pom = resource("classifiers.xml");
     Artifact artifact = new DefaultArtifact(
       "net.stickycode",
       "sticky-coercion",
@@ -155,21 +184,45 @@ public class StickyBoundsUpgradeMojoIntegrationTest {
       "[2.6,3)");
 
     new StickyBoundsUpgradeMojo().updateDependency(pom, artifact, "[2.6,3)");
-    XPathContext context = new XPathContext("mvn", "http://maven.apache.org/POM/4.0.0");
-
-    Nodes versions = pom.query("//mvn:version", context);
-    assertThat(versions.size()).isEqualTo(4);
-    Nodes nodes = pom.query("//mvn:version[text()='[2.6,3)']", context);
-    assertThat(nodes.size()).isEqualTo(1);
-    Node node = nodes.get(0);
-    assertThat(node.getValue()).isEqualTo("[2.6,3)");
+
+    assertThat(count(pom, "<version>")).isEqualTo(4);
+    assertThat(count(pom, "<version>[2.6,3)</version>")).isEqualTo(1);
   }
 
   @Test
-  public void writeNamespacesUnchanged()
-      throws ValidityException, ParsingException, IOException {
-    Document pom = new Builder().build(new File(new File("src/it/upgrade"), "pom.xml"));
-    Serializer s = new StickySerializer(new FileOutputStream(new File("target/tmp.xml")), "UTF-8");
-    s.write(pom);
+  public void writeNamespacesUnchanged() throws IOException {
+    File file = new File(new File("src/it/upgrade"), "pom.xml");
+    File written = new File("target/tmp.xml");
+    written.getParentFile().mkdirs();
+    PomDocument.load(file).write(written);
+    assertThat(new String(Files.readAllBytes(written.toPath()), StandardCharsets.UTF_8))
+      .isEqualTo(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void anEmptyPrefixedVersionIsClosedWithItsPrefix() {
+    PomDocument pom = new PomDocument(("<mvn:project xmlns:mvn=\"http://maven.apache.org/POM/4.0.0\">"
+      + "<mvn:groupId>net.stickycode</mvn:groupId><mvn:artifactId>sticky</mvn:artifactId><mvn:version/>"
+      + "</mvn:project>").getBytes(StandardCharsets.UTF_8));
+
+    PomIndex.build(pom, null).projectVersion().setValue("2.1");
+
+    assertThat(pom.toString()).isEqualTo("<mvn:project xmlns:mvn=\"http://maven.apache.org/POM/4.0.0\">"
+      + "<mvn:groupId>net.stickycode</mvn:groupId><mvn:artifactId>sticky</mvn:artifactId><mvn:version>2.1</mvn:version>"
+      + "</mvn:project>");
+  }
+
+  private PomDocument resource(String name) throws IOException {
+    try (InputStream in = getClass().getResourceAsStream(name)) {
+      return new PomDocument(in.readAllBytes());
+    }
+  }
+
+  private int count(PomDocument pom, String fragment) {
+    String text = pom.toString();
+    int count = 0;
+    for (int i = text.indexOf(fragment); i >= 0; i = text.indexOf(fragment, i + 1))
+      count++;
+    return count;
   }
 }
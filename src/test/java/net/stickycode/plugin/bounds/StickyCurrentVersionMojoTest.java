@@ -1,15 +1,139 @@
 package net.stickycode.plugin.bounds;
 
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
 import org.assertj.core.util.Lists;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
 import org.junit.Test;
 
 public class StickyCurrentVersionMojoTest {
 
+  private final RemoteRepository central = new RemoteRepository.Builder("central", "default",
+    "https://repo.maven.apache.org/maven2").build();
+
   @Test
   public void sanity() throws MojoExecutionException, MojoFailureException {
     new StickyCurrentVersionMojo().lookupVersions(Lists.emptyList());
   }
 
+  @Test
+  public void failuresAreReportedTogether() {
+    try {
+      new StickyCurrentVersionMojo().lookupVersions(Arrays.asList(
+        new ArtifactLookup().withGav("net.stickycode"),
+        new ArtifactLookup().withGav("net.stickycode:sticky-coercion")));
+      throw new AssertionError("expected the lookups to fail");
+    }
+    catch (MojoExecutionException e) {
+      assertThat(e.getMessage()).contains("2 of 2 artifacts");
+      assertThat(e.getMessage()).contains("Invalid gav:net.stickycode:sticky-coercion");
+    }
+  }
+
+  @Test
+  public void modulesOfTheReactorAreNotLookedUp() throws MojoExecutionException {
+    MavenProject module = new MavenProject();
+    module.setGroupId("net.stickycode");
+    module.setArtifactId("sticky-coercion");
+    module.setVersion("3.2");
+
+    StickyCurrentVersionMojo mojo = new StickyCurrentVersionMojo();
+    mojo.project = new MavenProject();
+    mojo.use(ReactorVersions.declared(Arrays.asList(module), false));
+    mojo.lookupVersions(Arrays.asList(new ArtifactLookup().withGav("net.stickycode:sticky-coercion:[3,4)")));
+
+    assertThat(mojo.project.getProperties().getProperty("sticky-coercion.version")).isEqualTo("3.2");
+  }
+
+  @Test
+  public void theReactorSharesTheVersionsResolvedOnce() throws MojoExecutionException {
+    MavenProject parent = project("sticky-parent");
+    MavenProject child = project("sticky-child");
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+
+    mojo(parent, Arrays.asList(parent, child), session, "3.2", central)
+      .lookupShared(Arrays.asList(new ArtifactLookup().withGav("net.stickycode:sticky-coercion:[3,4)")));
+    assertThat(parent.getProperties().getProperty("sticky-coercion.version")).isEqualTo("3.2");
+    // the other modules are only changed by their own executions
+    assertThat(child.getProperties().getProperty("sticky-coercion.version")).isNull();
+
+    // resolving again would find 3.3
+    mojo(child, Arrays.asList(parent, child), session, "3.3", central)
+      .lookupShared(Arrays.asList(new ArtifactLookup().withGav("net.stickycode:sticky-coercion:[3,4)")));
+    assertThat(child.getProperties().getProperty("sticky-coercion.version")).isEqualTo("3.2");
+    assertThat(child.getProperties().getProperty("sticky-coercion.versionRange")).isEqualTo("[3,4)");
+  }
+
+  @Test
+  public void executionsAgainstOtherRepositoriesResolveForThemselves() throws MojoExecutionException {
+    MavenProject parent = project("sticky-parent");
+    MavenProject other = project("sticky-other");
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+
+    mojo(parent, Arrays.asList(parent, other), session, "3.2", central)
+      .lookupShared(Arrays.asList(new ArtifactLookup().withGav("net.stickycode:sticky-coercion:[3,4)")));
+    mojo(other, Arrays.asList(parent, other), session, "3.3",
+      new RemoteRepository.Builder("central", "default", "https://mirror.example.com/maven2").build())
+        .lookupShared(Arrays.asList(new ArtifactLookup().withGav("net.stickycode:sticky-coercion:[3,4)")));
+    assertThat(other.getProperties().getProperty("sticky-coercion.version")).isEqualTo("3.3");
+  }
+
+  @Test
+  public void theSharedKeyCoversTheReactorSettings() {
+    List<ArtifactLookup> lookup = Arrays.asList(new ArtifactLookup().withGav("net.stickycode:sticky-coercion:[3,4)"));
+    assertThat(key(true, false, lookup)).isEqualTo(key(true, false, lookup));
+    assertThat(key(true, false, lookup)).isNotEqualTo(key(false, false, lookup));
+    assertThat(key(true, false, lookup)).isNotEqualTo(key(true, true, lookup));
+  }
+
+  private String key(boolean useReactorVersions, boolean reactorSnapshots, List<ArtifactLookup> lookup) {
+    StickyCurrentVersionMojo mojo = new StickyCurrentVersionMojo() {
+
+      @Override
+      protected boolean isUseReactorVersions() {
+        return useReactorVersions;
+      }
+
+      @Override
+      protected boolean isReactorSnapshots() {
+        return reactorSnapshots;
+      }
+    };
+    mojo.repositories = Arrays.asList(central);
+    return mojo.key(lookup);
+  }
+
+  private StickyCurrentVersionMojo mojo(MavenProject project, List<MavenProject> reactor,
+      DefaultRepositorySystemSession session, String version, RemoteRepository repository) {
+    MavenProject module = project("sticky-coercion");
+    module.setVersion(version);
+
+    StickyCurrentVersionMojo mojo = new StickyCurrentVersionMojo() {
+
+      @Override
+      protected List<MavenProject> reactor() {
+        return reactor;
+      }
+    };
+    mojo.project = project;
+    mojo.session = session;
+    mojo.repositories = Arrays.asList(repository);
+    mojo.use(ReactorVersions.declared(Arrays.asList(module), false));
+    return mojo;
+  }
+
+  private MavenProject project(String artifactId) {
+    MavenProject project = new MavenProject();
+    project.setGroupId("net.stickycode");
+    project.setArtifactId(artifactId);
+    return project;
+  }
+
 }
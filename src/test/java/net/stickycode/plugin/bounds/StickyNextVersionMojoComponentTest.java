@@ -5,11 +5,16 @@ import static org.assertj.core.api.StrictAssertions.assertThat;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import org.apache.maven.project.MavenProject;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.resolution.VersionRangeRequest;
 import org.eclipse.aether.resolution.VersionRangeResult;
 import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
 import org.eclipse.aether.version.Version;
 import org.junit.Test;
 
@@ -113,6 +118,92 @@ public class StickyNextVersionMojoComponentTest {
     check(VersionIncrementRule.patchDatetime, "5.6-SNAPSHOT", "5.9.123456789", "5.9", "1.999-SNAPSHOT");
   }
 
+  @Test
+  public void theHighestVersionsAreAllSnapshots() {
+    String[] resolved = new String[StickyNextVersionMojo.SLICE + 1];
+    resolved[0] = "1.7";
+    for (int i = 1; i < resolved.length; i++)
+      resolved[i] = "1.8." + i + "-SNAPSHOT";
+
+    check(VersionIncrementRule.minor, "1.999-SNAPSHOT", "1.8", resolved);
+  }
+
+  @Test
+  public void theReactorSharesTheNextVersionOfAllItsModules() {
+    List<String> prefetched = new ArrayList<>();
+    StickyNextVersionMojo mojo = new StickyNextVersionMojo() {
+
+      @Override
+      protected List<MavenProject> reactor() {
+        return Arrays.asList(module("sticky-coercion"), module("sticky-configured"), module("sticky-unreleased"));
+      }
+
+      @Override
+      void prefetch(VersionRangeRequest request) {
+        prefetched.add(request.getArtifact().getArtifactId());
+      }
+
+      @Override
+      VersionRangeResult resolve(VersionRangeRequest request) {
+        VersionRangeResult result = new VersionRangeResult(request);
+        if (request.getArtifact().getArtifactId().equals("sticky-coercion"))
+          result.addVersion(new VersionImplementation("1.5"));
+        else if (request.getArtifact().getArtifactId().equals("sticky-configured"))
+          result.addVersion(new VersionImplementation("1.7"));
+        else
+          result.addException(new MetadataNotFoundException(null, null, "Nothing"));
+        return result;
+      }
+
+      @Override
+      DefaultArtifact projectArtifact(String versionRange) {
+        return new DefaultArtifact("net.stickycode", "sticky-coercion", "jar", versionRange);
+      }
+    };
+
+    assertThat(mojo.reactorNextVersion("1.999-SNAPSHOT")).isEqualTo("1.8");
+    assertThat(prefetched.toString()).isEqualTo("[sticky-coercion, sticky-configured, sticky-unreleased]");
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void aFailureBehindMissingMetadataIsNotTakenForNoReleases() {
+    StickyNextVersionMojo mojo = new StickyNextVersionMojo() {
+
+      @Override
+      protected List<MavenProject> reactor() {
+        return Arrays.asList(module("sticky-unreleased"), module("sticky-unreachable"));
+      }
+
+      @Override
+      void prefetch(VersionRangeRequest request) {
+      }
+
+      @Override
+      VersionRangeResult resolve(VersionRangeRequest request) {
+        VersionRangeResult result = new VersionRangeResult(request);
+        if (request.getArtifact().getArtifactId().equals("sticky-unreleased"))
+          result.addException(new MetadataNotFoundException(null, null, "Nothing"));
+        else
+          result.addException(new MetadataTransferException(null, null, "Connection refused"));
+        return result;
+      }
+
+      @Override
+      DefaultArtifact projectArtifact(String versionRange) {
+        return new DefaultArtifact("net.stickycode", "sticky-unreleased", "jar", versionRange);
+      }
+    };
+
+    mojo.reactorNextVersion("1.999-SNAPSHOT");
+  }
+
+  private MavenProject module(String artifactId) {
+    MavenProject module = new MavenProject();
+    module.setGroupId("net.stickycode");
+    module.setArtifactId(artifactId);
+    return module;
+  }
+
   private void check(VersionIncrementRule versionIncrement, String projectVersion, String expectation,
       String... resolvedVersions) {
     check(versionIncrement, true, projectVersion, expectation, null, resolvedVersions);
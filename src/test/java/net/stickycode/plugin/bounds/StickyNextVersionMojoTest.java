@@ -6,6 +6,7 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
 
+import org.apache.maven.project.MavenProject;
 import org.junit.Test;
 
 public class StickyNextVersionMojoTest {
@@ -145,4 +146,23 @@ public class StickyNextVersionMojoTest {
     assertThat(mojo.versionRange(version)).isEqualTo(expectation);
   }
 
+  @Test
+  public void theSharedVersionIsKeyedByTheRule() {
+    assertThat(sharedKey(VersionIncrementRule.major)).isNotEqualTo(sharedKey(VersionIncrementRule.minor));
+    assertThat(sharedKey(VersionIncrementRule.minor)).isEqualTo(sharedKey(VersionIncrementRule.minor));
+  }
+
+  private String sharedKey(VersionIncrementRule versionIncrement) {
+    StickyNextVersionMojo mojo = new StickyNextVersionMojo() {
+
+      @Override
+      VersionIncrementRule getVersionIncrement() {
+        return versionIncrement;
+      }
+    };
+    mojo.project = new MavenProject();
+    mojo.project.setVersion("2.999-SNAPSHOT");
+    return mojo.key();
+  }
+
 }
@@ -0,0 +1,118 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.junit.Test;
+
+public class StickyPrefetchMojoTest {
+
+  @Test
+  public void everyRangeOnce() throws MojoExecutionException {
+    MavenProject api = module("api", "1.2");
+    dependency(api, "sticky-coercion", "[2.1,3)");
+    dependency(api, "sticky-fixed", "1.4");
+    MavenProject implementation = module("implementation", "3.1-SNAPSHOT");
+    dependency(implementation, "sticky-coercion", "[2.1,3)");
+    dependency(implementation, "sticky-reflector", "[1.4]");
+    bounds(implementation,
+      execution("current-version", configuration("artifacts", "net.stickycode:sticky-bootstrap:[3,4)")),
+      execution("next-version", configuration("incrementRule", null)));
+
+    List<String> ranges = new ArrayList<>();
+    for (VersionRangeRequest request : mojo().ranges(Arrays.asList(api, implementation)).values())
+      ranges.add(request.getArtifact().getArtifactId() + ":" + request.getArtifact().getVersion());
+
+    assertThat(ranges.size()).isEqualTo(4);
+    assertThat(ranges.get(0)).isEqualTo("sticky-coercion:[2.1,3)");
+    assertThat(ranges.get(1)).isEqualTo("sticky-reflector:[1.4]");
+    assertThat(ranges.get(2)).isEqualTo("sticky-bootstrap:[3,4)");
+    assertThat(ranges.get(3)).isEqualTo("implementation:[3,4)");
+  }
+
+  @Test
+  public void releasesHaveNoNextVersion() throws MojoExecutionException {
+    MavenProject api = module("api", "1.2");
+    bounds(api, execution("next-version", null));
+
+    assertThat(mojo().ranges(Arrays.asList(api)).isEmpty()).isTrue();
+  }
+
+  @Test(expected = MojoExecutionException.class)
+  public void anUnknownIncrementRuleIsReported() throws MojoExecutionException {
+    MavenProject implementation = module("implementation", "3.1-SNAPSHOT");
+    Xpp3Dom configuration = new Xpp3Dom("configuration");
+    Xpp3Dom rule = new Xpp3Dom("incrementRule");
+    rule.setValue("sideways");
+    configuration.addChild(rule);
+    bounds(implementation, execution("next-version", configuration));
+
+    mojo().ranges(Arrays.asList(implementation));
+  }
+
+  private StickyPrefetchMojo mojo() {
+    return new StickyPrefetchMojo() {
+
+      @Override
+      String pluginKey() {
+        return "net.stickycode.plugins:bounds-maven-plugin";
+      }
+    };
+  }
+
+  private MavenProject module(String artifactId, String version) {
+    MavenProject module = new MavenProject();
+    module.setGroupId("net.stickycode");
+    module.setArtifactId(artifactId);
+    module.setVersion(version);
+    module.setBuild(new Build());
+    return module;
+  }
+
+  private void dependency(MavenProject module, String artifactId, String version) {
+    Dependency dependency = new Dependency();
+    dependency.setGroupId("net.stickycode");
+    dependency.setArtifactId(artifactId);
+    dependency.setVersion(version);
+    module.getDependencies().add(dependency);
+  }
+
+  private void bounds(MavenProject module, PluginExecution... executions) {
+    Plugin plugin = new Plugin();
+    plugin.setGroupId("net.stickycode.plugins");
+    plugin.setArtifactId("bounds-maven-plugin");
+    plugin.setExecutions(Arrays.asList(executions));
+    module.getBuild().addPlugin(plugin);
+  }
+
+  private PluginExecution execution(String goal, Xpp3Dom configuration) {
+    PluginExecution execution = new PluginExecution();
+    execution.setId(goal);
+    execution.addGoal(goal);
+    execution.setConfiguration(configuration);
+    return execution;
+  }
+
+  private Xpp3Dom configuration(String name, String value) {
+    Xpp3Dom configuration = new Xpp3Dom("configuration");
+    Xpp3Dom child = new Xpp3Dom(name);
+    if (value != null) {
+      Xpp3Dom item = new Xpp3Dom("artifact");
+      item.setValue(value);
+      child.addChild(item);
+    }
+    configuration.addChild(child);
+    return configuration;
+  }
+}
@@ -0,0 +1,82 @@
+package net.stickycode.plugin.bounds;
+
+import static net.stickycode.plugin.bounds.ResolverFixtures.found;
+import static net.stickycode.plugin.bounds.ResolverFixtures.repository;
+import static net.stickycode.plugin.bounds.ResolverFixtures.sleep;
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.junit.Test;
+
+public class TimeBudgetTest {
+
+  private final AtomicInteger lookups = new AtomicInteger();
+
+  @Test
+  public void theBudgetIsSharedByTheSession() {
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    TimeBudget budget = TimeBudget.of(session, Duration.ofSeconds(60));
+    assertThat(TimeBudget.of(session, Duration.ofSeconds(1))).isSameAs(budget);
+    assertThat(budget.isExpired()).isFalse();
+    assertThat(new TimeBudget(Duration.ofSeconds(1), System.nanoTime() - 2_000_000_000L).isExpired()).isTrue();
+  }
+
+  @Test
+  public void whatWasResolvedInTimeIsKeptAndTheRestSkipped() {
+    RangeResolver resolver = resolver(new TimeBudget(Duration.ofMillis(300), System.nanoTime()));
+    resolver.prefetch(request("sticky-coercion"));
+    resolver.prefetch(request("sticky-slow"));
+
+    assertThat(resolver.resolve(request("sticky-coercion")).getVersions().toString()).isEqualTo("[1.1]");
+    try {
+      resolver.resolve(request("sticky-slow"));
+      throw new AssertionError("expected the budget to run out");
+    }
+    catch (TimeBudgetExpiredException e) {
+      assertThat(e.getMessage()).isEqualTo("Ran out of time resolving net.stickycode:sticky-slow:[1,2)");
+    }
+
+    // already resolved so still answered after the budget ran out
+    assertThat(resolver.resolve(request("sticky-coercion")).getVersions().toString()).isEqualTo("[1.1]");
+    assertThat(resolver.getSkipped().toString()).isEqualTo("[net.stickycode:sticky-slow:[1,2)]");
+    resolver.close();
+  }
+
+  @Test
+  public void nothingIsLookedUpOnceTheBudgetHasRunOut() {
+    RangeResolver resolver = resolver(new TimeBudget(Duration.ZERO, System.nanoTime()));
+    try {
+      resolver.index(request("sticky-coercion"));
+      throw new AssertionError("expected the budget to have run out");
+    }
+    catch (TimeBudgetExpiredException e) {
+      assertThat(lookups.get()).isEqualTo(0);
+      assertThat(resolver.getSkipped().toString()).isEqualTo("[net.stickycode:sticky-coercion:[1,2)]");
+    }
+  }
+
+  private RangeResolver resolver(TimeBudget budget) {
+    return new RangeResolver(null, new DefaultRepositorySystemSession(), 4) {
+
+      @Override
+      VersionRangeResult lookup(VersionRangeRequest request) {
+        lookups.incrementAndGet();
+        if (request.getArtifact().getArtifactId().equals("sticky-slow"))
+          sleep(5000);
+        return found(null, "1.1");
+      }
+    }.withBudget(budget);
+  }
+
+  private VersionRangeRequest request(String artifactId) {
+    return new VersionRangeRequest(new DefaultArtifact("net.stickycode", artifactId, "jar", "[1,2)"),
+      Arrays.asList(repository("central")), null);
+  }
+}
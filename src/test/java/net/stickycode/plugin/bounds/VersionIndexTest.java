@@ -0,0 +1,93 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.junit.Test;
+
+public class VersionIndexTest {
+
+  private final VersionIndex index = index("1.1", "1.10", "1.9", "2.0-SNAPSHOT", "2.1", "2.2-SNAPSHOT", "3.0");
+
+  @Test
+  public void highest() {
+    assertThat(index.highest(false).toString()).isEqualTo("3.0");
+    assertThat(index(new String[0]).highest(true)).isNull();
+  }
+
+  @Test
+  public void highestInRange() {
+    assertThat(highest("[1,2)", false)).isEqualTo("1.10");
+    assertThat(highest("[2,3)", false)).isEqualTo("2.1");
+    assertThat(highest("[2,3)", true)).isEqualTo("2.2-SNAPSHOT");
+    assertThat(highest("[1.1,1.9]", false)).isEqualTo("1.9");
+    assertThat(highest("(,1.9)", false)).isEqualTo("1.1");
+    assertThat(highest("[1,2),[2.5,)", false)).isEqualTo("3.0");
+    assertThat(highest("[4,)", false)).isNull();
+    assertThat(highest("(3.0,)", true)).isNull();
+  }
+
+  @Test
+  public void snapshotsAreKeptApart() {
+    assertThat(index.snapshots().size()).isEqualTo(2);
+    assertThat(index.versions(false).size()).isEqualTo(5);
+    assertThat(index.versions(true).size()).isEqualTo(7);
+  }
+
+  @Test
+  public void qualifiersOrderTheWayTheResolverOrdersThem() {
+    VersionIndex qualified = index("1.0-rc9", "1.0-rc10", "1.0a1");
+    assertThat(qualified.highest(false).toString()).isEqualTo("1.0-rc10");
+    assertThat(qualified.highest(VersionRange.parse("[1.0a1,1.0-rc9]"), false).toString()).isEqualTo("1.0-rc9");
+  }
+
+  @Test
+  public void highestFromTheTopOfTheResolvedVersions() {
+    List<Version> ascending = versions("1.1", "1.9", "1.10", "2.0-SNAPSHOT", "2.1", "2.2-SNAPSHOT");
+    assertThat(VersionIndex.highest(ascending, VersionRange.parse("[1,)"), false, 2).toString()).isEqualTo("2.1");
+    assertThat(VersionIndex.highest(ascending, VersionRange.parse("[1,)"), true, 2).toString()).isEqualTo("2.2-SNAPSHOT");
+    assertThat(VersionIndex.highest(ascending, VersionRange.parse("[1,2)"), false, 6).toString()).isEqualTo("1.10");
+    // the answer is below the slice so the full index has to be used
+    assertThat(VersionIndex.highest(ascending, VersionRange.parse("[1,2)"), false, 3)).isNull();
+  }
+
+  private String highest(String range, boolean includeSnapshots) {
+    Object highest = index.highest(VersionRange.parse(range), includeSnapshots);
+    return highest == null ? null : highest.toString();
+  }
+
+  private List<Version> versions(String... versions) {
+    try {
+      GenericVersionScheme scheme = new GenericVersionScheme();
+      List<Version> parsed = new ArrayList<>();
+      for (String version : versions)
+        parsed.add(scheme.parseVersion(version));
+      return parsed;
+    }
+    catch (InvalidVersionSpecificationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private VersionIndex index(String... versions) {
+    try {
+      GenericVersionScheme scheme = new GenericVersionScheme();
+      VersionRangeResult result = new VersionRangeResult(
+        new VersionRangeRequest(new DefaultArtifact("net.stickycode", "sticky-coercion", "jar", "[1,)"), null, null));
+      for (String version : versions)
+        result.addVersion(scheme.parseVersion(version));
+      return VersionIndex.of(result);
+    }
+    catch (InvalidVersionSpecificationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
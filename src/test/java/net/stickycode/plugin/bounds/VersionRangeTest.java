@@ -0,0 +1,70 @@
+package net.stickycode.plugin.bounds;
+
+import static org.assertj.core.api.StrictAssertions.assertThat;
+
+import org.junit.Test;
+
+public class VersionRangeTest {
+
+  @Test
+  public void notARange() {
+    assertThat(VersionRange.parse("1.4").isRange()).isFalse();
+    assertThat(VersionRange.parse("${sticky.version}").isRange()).isFalse();
+    assertThat(VersionRange.parse("[${sticky.version},2)").isRange()).isFalse();
+    assertThat(VersionRange.parse("[1.0").isRange()).isFalse();
+    assertThat(VersionRange.parse("[1,2)x").isRange()).isFalse();
+    assertThat(VersionRange.parse("(1.0)").isRange()).isFalse();
+    assertThat(VersionRange.parse(null).isRange()).isFalse();
+  }
+
+  @Test
+  public void bounds() {
+    VersionRange range = VersionRange.parse("[1.0.4 , 2.3.4)");
+    assertThat(range.getLower()).isEqualTo("1.0.4");
+    assertThat(range.getUpper()).isEqualTo("2.3.4");
+    assertThat(range.getRestrictions().get(0).isLowerInclusive()).isTrue();
+    assertThat(range.getRestrictions().get(0).isUpperInclusive()).isFalse();
+
+    assertThat(VersionRange.parse("[1.0,)").getUpper()).isNull();
+    assertThat(VersionRange.parse("(,1.0]").getLower()).isNull();
+    assertThat(VersionRange.parse("(,1.0]").isHalfOpen()).isFalse();
+    assertThat(VersionRange.parse("(1.0,2)").isHalfOpen()).isFalse();
+  }
+
+  @Test
+  public void multiRange() {
+    VersionRange range = VersionRange.parse("[1,2),[3,4)");
+    assertThat(range.isMultiRange()).isTrue();
+    assertThat(range.isHalfOpen()).isFalse();
+    assertThat(range.isFixed()).isFalse();
+    assertThat(range.getRestrictions().size()).isEqualTo(2);
+    assertThat(range.getLower()).isEqualTo("1");
+    assertThat(range.getUpper()).isEqualTo("4");
+  }
+
+  @Test
+  public void contains() {
+    assertThat(VersionRange.parse("[1.2,2)").contains("1.2")).isTrue();
+    assertThat(VersionRange.parse("[1.2,2)").contains("1.9.9")).isTrue();
+    assertThat(VersionRange.parse("[1.2,2)").contains("2")).isFalse();
+    assertThat(VersionRange.parse("(1.2,2]").contains("1.2")).isFalse();
+    assertThat(VersionRange.parse("(1.2,2]").contains("2.0")).isTrue();
+    assertThat(VersionRange.parse("[1.2,)").contains("2.1-SNAPSHOT")).isTrue();
+    assertThat(VersionRange.parse("[1,2),[3,4)").contains("2.5")).isFalse();
+    assertThat(VersionRange.parse("[1,2),[3,4)").contains("3.5")).isTrue();
+    assertThat(VersionRange.parse("1.2").contains("1.2")).isFalse();
+  }
+
+  @Test
+  public void withoutUpperBound() {
+    assertThat(VersionRange.parse("[1.0 ,2)").withoutUpperBound()).isEqualTo("[1.0 ,)");
+    assertThat(VersionRange.parse("[1.2.3,1.2.3.4)").withoutUpperBound()).isEqualTo("[1.2.3,)");
+    assertThat(VersionRange.halfOpen("2.1", "2.2").toString()).isEqualTo("[2.1,2.2)");
+    assertThat(VersionRange.halfOpen("2", null).toString()).isEqualTo("[2,)");
+  }
+
+  @Test(expected = VersionWasNotARangeException.class)
+  public void fixedHasNoUpperBoundToRemove() {
+    VersionRange.parse("[1.2]").withoutUpperBound();
+  }
+}